@@ -0,0 +1,53 @@
+package com.accesa.pricecomparator.config;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+/**
+ * Invokes controller methods like the default adapter, but between binding the arguments
+ * and calling the method asks {@link ConditionalGetInterceptor} whether the client's copy
+ * is current. Missing or unconvertible parameters fail binding first and keep their 400;
+ * checks a method makes in its own body (such as a range ending before it starts) run
+ * after the 304 decision, but their error responses are never given an ETag to match.
+ */
+class ConditionalGetHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    ConditionalGetHandlerAdapter(ConditionalGetInterceptor conditionalGetInterceptor) {
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        return new ServletInvocableHandlerMethod(handlerMethod) {
+            @Override
+            public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer,
+                                           Object... providedArgs) throws Exception {
+                Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+                ConditionalGetInterceptor.Validators validators = request instanceof ServletWebRequest
+                        ? conditionalGetInterceptor.validators(((ServletWebRequest) request).getRequest()) : null;
+                if (validators == null) {
+                    return doInvoke(args);
+                }
+
+                ServletWebRequest webRequest = (ServletWebRequest) request;
+                if (validators.isCurrent(webRequest.getRequest())) {
+                    // A null result on a not-modified request is completed as the 304 by invokeAndHandle
+                    validators.notModified(webRequest);
+                    return null;
+                }
+                Object result = doInvoke(args);
+                if (!(result instanceof ResponseEntity) || ((ResponseEntity<?>) result).getStatusCode().is2xxSuccessful()) {
+                    validators.tag(webRequest.getResponse());
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.accesa.pricecomparator.config;
+
+import com.accesa.pricecomparator.data.DatasetStamp;
+import com.accesa.pricecomparator.service.CSVService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Conditional GET for the read-only data endpoints. Their responses only depend on the
+ * loaded dataset, the request and, for dates defaulting to today, the current day, so the
+ * ETag is built from those. This interceptor only marks the GET and HEAD requests mapped
+ * to a controller method; {@link ConditionalGetHandlerAdapter} checks the validators once
+ * the method's arguments are bound, so a request that would fail binding still gets its
+ * 400. A matching If-None-Match (or, without one, an If-Modified-Since not older than the
+ * data) then gets a 304 without reaching the services. Only 304s and successful responses
+ * carry the validators, so a client never holds a tag for a request that failed.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private static final String CONDITIONAL_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".conditional";
+
+    private final CSVService csvService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod
+                && ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            request.setAttribute(CONDITIONAL_ATTRIBUTE, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the validators of a marked request
+     * @param request Request whose handler arguments are already bound
+     * @return Validators, or null if the request is not conditional
+     */
+    public Validators validators(HttpServletRequest request) {
+        if (request.getAttribute(CONDITIONAL_ATTRIBUTE) == null) {
+            return null;
+        }
+        DatasetStamp stamp = csvService.getDatasetStamp();
+        LocalDate today = LocalDate.now();
+        String etag = "W/\"" + stamp.getTag() + "-" + today.toEpochDay() + "-" + requestHash(request) + "\"";
+        // Answers for "today" change at midnight even when the files do not
+        long startOfToday = today.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new Validators(etag, Math.max(stamp.getLastModified(), startOfToday));
+    }
+
+    /**
+     * ETag and Last-Modified of one response
+     */
+    public static final class Validators {
+        private final String etag;
+        private final long lastModified;
+
+        private Validators(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Checks whether the client's copy is current, without touching the response
+         */
+        public boolean isCurrent(HttpServletRequest request) {
+            return new ServletWebRequest(request).checkNotModified(etag, lastModified);
+        }
+
+        /**
+         * Answers 304 with the validators set
+         */
+        public void notModified(ServletWebRequest webRequest) {
+            webRequest.checkNotModified(etag, lastModified);
+            tag(webRequest.getResponse());
+        }
+
+        /**
+         * Sets the validators on a response the handler produced
+         */
+        public void tag(HttpServletResponse response) {
+            if (response == null) {
+                return;
+            }
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            // JSON and NDJSON bodies of one URL get different tags
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+    }
+
+    // Path, query parameters sorted by name and the Accept header
+    private static String requestHash(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        parameters.forEach((name, values) -> key.append('&').append(name).append('=').append(Arrays.toString(values)));
+        key.append('|').append(request.getHeader(HttpHeaders.ACCEPT));
+
+        CRC32 crc = new CRC32();
+        crc.update(key.toString().getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
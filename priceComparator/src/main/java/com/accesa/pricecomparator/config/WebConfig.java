@@ -0,0 +1,40 @@
+package com.accesa.pricecomparator.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    // ETag / Last-Modified validation of the product and discount endpoints
+    @Value("${app.http.conditional-get.enabled:true}")
+    private boolean conditionalGetEnabled;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (conditionalGetEnabled) {
+            registry.addInterceptor(conditionalGetInterceptor)
+                    .addPathPatterns("/api/products/**", "/api/discounts/**");
+        }
+    }
+
+    // Lets the conditional check run after a handler's arguments are bound
+    @Bean
+    public WebMvcRegistrations conditionalGetRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new ConditionalGetHandlerAdapter(conditionalGetInterceptor);
+            }
+        };
+    }
+}
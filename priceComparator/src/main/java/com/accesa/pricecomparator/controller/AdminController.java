@@ -0,0 +1,45 @@
+package com.accesa.pricecomparator.controller;
+
+import com.accesa.pricecomparator.model.QueryCacheStats;
+import com.accesa.pricecomparator.model.ReloadStatus;
+import com.accesa.pricecomparator.service.CSVService;
+import com.accesa.pricecomparator.service.QueryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final CSVService csvService;
+    private final QueryCache queryCache;
+
+    @PostMapping("/reload")
+    public ResponseEntity<ReloadStatus> reload(@RequestParam(defaultValue = "false") boolean wait,
+                                               @RequestParam(defaultValue = "false") boolean full) {
+        if (csvService.isReloading()) {
+            return new ResponseEntity<>(csvService.getReloadStatus(), HttpStatus.CONFLICT);
+        }
+
+        // Without wait the reload runs in the background and can be followed on GET /reload
+        String trigger = full ? "admin (full)" : "admin";
+        if (wait) {
+            return new ResponseEntity<>(csvService.reloadAsync(trigger, full).join(), HttpStatus.OK);
+        }
+        csvService.reloadAsync(trigger, full);
+        return new ResponseEntity<>(csvService.getReloadStatus(), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/reload")
+    public ReloadStatus getReloadStatus() {
+        return csvService.getReloadStatus();
+    }
+
+    @GetMapping("/cache")
+    public QueryCacheStats getCacheStats() {
+        return queryCache.getStats();
+    }
+}
@@ -1,11 +1,16 @@
 package com.accesa.pricecomparator.controller;
 
 import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.DiscountSegment;
 import com.accesa.pricecomparator.model.Product;
 import com.accesa.pricecomparator.service.DiscountService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,34 +22,92 @@ import java.util.Map;
 public class DiscountController {
 
     private final DiscountService discountService;
+    private final ObjectMapper objectMapper;
+
+    /*
+     * The list endpoints below return the whole list unless a cursor or limit is given,
+     * then a page of it (see ListingResponses). Asking for application/x-ndjson streams
+     * every row instead, one JSON object per line.
+     */
 
     @GetMapping
-    public List<Discount> getAllDiscounts() {
-        return discountService.getAllDiscounts();
+    public ResponseEntity<List<Discount>> getAllDiscounts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ListingResponses.list(discountService.listAllDiscounts(), cursor, limit);
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllDiscounts() {
+        return ListingResponses.stream(discountService.listAllDiscounts(), objectMapper);
     }
 
     @GetMapping("/store/{store}")
-    public List<Discount> getDiscountsByStore(@PathVariable String store) {
-        return discountService.getDiscountsByStore(store);
+    public ResponseEntity<List<Discount>> getDiscountsByStore(
+            @PathVariable String store,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ListingResponses.list(discountService.listDiscountsByStore(store), cursor, limit);
+    }
+
+    @GetMapping(value = "/store/{store}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamDiscountsByStore(@PathVariable String store) {
+        return ListingResponses.stream(discountService.listDiscountsByStore(store), objectMapper);
     }
 
     @GetMapping("/active")
-    public List<Discount> getActiveDiscounts(
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+    public ResponseEntity<List<Discount>> getActiveDiscounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         // If date is not provided, use current date
         LocalDate checkDate = date != null ? date : LocalDate.now();
-        return discountService.getActiveDiscounts(checkDate);
+        return ListingResponses.list(discountService.listActiveDiscounts(checkDate), cursor, limit);
+    }
+
+    @GetMapping(value = "/active", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamActiveDiscounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate checkDate = date != null ? date : LocalDate.now();
+        return ListingResponses.stream(discountService.listActiveDiscounts(checkDate), objectMapper);
+    }
+
+    @GetMapping("/active-range")
+    public ResponseEntity<List<Discount>> getActiveDiscountsBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String store) {
+        if (to.isBefore(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(discountService.getActiveDiscountsBetween(from, to, store), HttpStatus.OK);
     }
 
     @GetMapping("/new")
-    public List<Discount> getNewDiscounts(
+    public ResponseEntity<List<Discount>> getNewDiscounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ListingResponses.list(discountService.listNewDiscounts(since), cursor, limit);
+    }
+
+    @GetMapping(value = "/new", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamNewDiscounts(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
-        return discountService.getNewDiscounts(since);
+        return ListingResponses.stream(discountService.listNewDiscounts(since), objectMapper);
     }
 
     @GetMapping("/category/{category}")
-    public List<Discount> getDiscountsByCategory(@PathVariable String category) {
-        return discountService.getDiscountsByCategory(category);
+    public ResponseEntity<List<Discount>> getDiscountsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ListingResponses.list(discountService.listDiscountsByCategory(category), cursor, limit);
+    }
+
+    @GetMapping(value = "/category/{category}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamDiscountsByCategory(@PathVariable String category) {
+        return ListingResponses.stream(discountService.listDiscountsByCategory(category), objectMapper);
     }
 
     @GetMapping("/product/{productId}")
@@ -53,8 +116,11 @@ public class DiscountController {
     }
 
     @GetMapping("/best")
-    public List<Discount> getBestDiscounts(@RequestParam(defaultValue = "10") int limit) {
-        return discountService.getBestDiscounts(limit);
+    public List<Discount> getBestDiscounts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String store,
+            @RequestParam(defaultValue = "10") int limit) {
+        return discountService.getBestDiscounts(category, store, limit);
     }
 
     @GetMapping("/best-products")
@@ -68,4 +134,11 @@ public class DiscountController {
             @RequestParam(required = false) String store) {
         return discountService.getDiscountHistory(productId, store);
     }
+
+    @GetMapping(value = "/history/{productId}", params = "format=intervals")
+    public List<DiscountSegment> getDiscountHistorySegments(
+            @PathVariable String productId,
+            @RequestParam(required = false) String store) {
+        return discountService.getDiscountHistorySegments(productId, store);
+    }
 }
\ No newline at end of file
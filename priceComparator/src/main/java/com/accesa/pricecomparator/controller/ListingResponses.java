@@ -0,0 +1,69 @@
+package com.accesa.pricecomparator.controller;
+
+import com.accesa.pricecomparator.data.SnapshotListing;
+import com.accesa.pricecomparator.model.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Responses shared by the list endpoints: the whole list (the default), one page of it
+ * when a cursor or limit is given, or every row as NDJSON
+ */
+final class ListingResponses {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private ListingResponses() {
+    }
+
+    /**
+     * Lists the rows, a page at a time once the client asks for a cursor or a limit.
+     * When more rows follow, the response carries an X-Next-Cursor header; a cursor from
+     * another dataset, or from before a data reload, gets 410 Gone and the listing has to
+     * start over.
+     */
+    static <T> ResponseEntity<List<T>> list(SnapshotListing<T> listing, String cursor, Integer limit) {
+        if (cursor == null && limit == null) {
+            return new ResponseEntity<>(listing.toList(), HttpStatus.OK);
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || (cursor != null && !SnapshotListing.isCursor(cursor))) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        CursorPage<T> page = listing.page(cursor, pageSize);
+        if (page == null) {
+            return new ResponseEntity<>(HttpStatus.GONE);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Streams the rows one JSON object per line, serialized as they are read
+     */
+    static ResponseEntity<StreamingResponseBody> stream(SnapshotListing<?> listing, ObjectMapper objectMapper) {
+        StreamingResponseBody body = out -> listing.forEach(row -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
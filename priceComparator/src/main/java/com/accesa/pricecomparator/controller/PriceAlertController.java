@@ -1,12 +1,27 @@
 package com.accesa.pricecomparator.controller;
 
+import com.accesa.pricecomparator.model.AlertImportResult;
+import com.accesa.pricecomparator.model.AlertImportRow;
+import com.accesa.pricecomparator.model.CursorPage;
 import com.accesa.pricecomparator.model.PriceAlert;
+import com.accesa.pricecomparator.service.AlertNotificationService;
 import com.accesa.pricecomparator.service.PriceAlertService;
+import com.accesa.pricecomparator.util.AlertImportReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -16,23 +31,80 @@ import java.util.Map;
 public class PriceAlertController {
 
     private final PriceAlertService alertService;
+    private final AlertNotificationService notificationService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<PriceAlert> createAlert(@RequestBody Map<String, Object> request) {
         String productId = (String) request.get("productId");
         String store = (String) request.get("store");
         Double targetPrice = Double.valueOf(request.get("targetPrice").toString());
-        String userId = (String) request.getOrDefault("userId", "anonymous");
+        // Missing or null means the anonymous user
+        String userId = (String) request.get("userId");
 
         PriceAlert alert = alertService.createAlert(productId, store, targetPrice, userId);
         return new ResponseEntity<>(alert, HttpStatus.CREATED);
     }
 
+    /**
+     * Creates alerts in bulk from one JSON object per line. Responds with one JSON result
+     * per line, in body order; a bad line is rejected on its own.
+     */
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importAlertsNdjson(InputStream body) {
+        return importAlerts(AlertImportReader.ndjson(reader(body), objectMapper));
+    }
+
+    /**
+     * Creates alerts in bulk from ';' separated lines under a
+     * product_id;store;target_price;user_id header
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importAlertsCsv(InputStream body) {
+        return importAlerts(AlertImportReader.csv(reader(body)));
+    }
+
+    private ResponseEntity<StreamingResponseBody> importAlerts(Iterator<AlertImportRow> rows) {
+        // The body is read (and the alerts stored) before responding
+        List<AlertImportResult> results = alertService.importAlerts(rows);
+        StreamingResponseBody response = out -> {
+            for (AlertImportResult result : results) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok(response);
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Lists alerts a page at a time, in id order. When more alerts follow, the response
+     * carries an X-Next-Cursor header; pass its value as cursor to get the next page.
+     */
     @GetMapping
-    public List<PriceAlert> getAlerts(
+    public ResponseEntity<List<PriceAlert>> getAlerts(
             @RequestParam(required = false) String userId,
-            @RequestParam(defaultValue = "false") boolean activeOnly) {
-        return alertService.getAlerts(userId, activeOnly);
+            @RequestParam(required = false) String productId,
+            @RequestParam(defaultValue = "false") boolean activeOnly,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        CursorPage<PriceAlert> page = alertService.getAlerts(userId, productId, activeOnly, cursor, limit);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(@RequestParam String userId) {
+        return notificationService.subscribe(userId);
     }
 
     @GetMapping("/{id}")
@@ -1,14 +1,27 @@
 package com.accesa.pricecomparator.controller;
 
+import com.accesa.pricecomparator.model.Basket;
+import com.accesa.pricecomparator.model.BasketRequest;
+import com.accesa.pricecomparator.model.EffectivePrice;
 import com.accesa.pricecomparator.model.Product;
+import com.accesa.pricecomparator.model.SplitBasketResult;
+import com.accesa.pricecomparator.model.StoreQuote;
+import com.accesa.pricecomparator.service.BasketService;
 import com.accesa.pricecomparator.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/products")
@@ -16,17 +29,25 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final BasketService basketService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/best-discounts")
-    public List<Product> getBestDiscounts(@RequestParam(defaultValue = "10") int limit) {
-        return productService.getBestDiscounts(limit);
+    public List<Product> getBestDiscounts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String store,
+            @RequestParam(defaultValue = "10") int limit) {
+        return productService.getBestDiscounts(category, store, limit);
     }
 
     @GetMapping("/best-value")
     public List<Product> getBestValuePerUnit(
             @RequestParam(required = false) String category,
-            @RequestParam(defaultValue = "10") int limit) {
-        return productService.getBestValuePerUnit(category, limit);
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) String unit,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean groupByUnit) {
+        return productService.getBestValuePerUnit(category, store, unit, limit, groupByUnit);
     }
 
     @GetMapping("/compare")
@@ -36,6 +57,13 @@ public class ProductController {
         return productService.compareProductPrices(productName, date);
     }
 
+    @GetMapping("/search")
+    public List<Product> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return productService.searchProducts(q, limit);
+    }
+
     @GetMapping("/price-history/{productId}")
     public Map<LocalDate, Double> getPriceHistory(
             @PathVariable String productId,
@@ -43,6 +71,16 @@ public class ProductController {
         return productService.getPriceHistory(productId, store);
     }
 
+    @GetMapping("/effective-price")
+    public List<EffectivePrice> getEffectivePrices(
+            @RequestParam String productId,
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        // If date is not provided, use current date
+        LocalDate priceDate = date != null ? date : LocalDate.now();
+        return productService.getEffectivePrices(productId, store, priceDate);
+    }
+
     @PostMapping("/optimize-basket")
     public Map<String, Double> optimizeShoppingBasket(
             @RequestBody List<String> productIds,
@@ -50,9 +88,60 @@ public class ProductController {
         return productService.optimizeShoppingBasket(productIds, date);
     }
 
+    @PostMapping("/optimize-basket/items")
+    public ResponseEntity<List<StoreQuote>> quoteShoppingBasket(
+            @RequestBody Basket basket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (basket.getItems() != null
+                && basket.getItems().stream().anyMatch(item -> item == null || item.getProductId() == null)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(basketService.quoteBasket(basket, date), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/optimize-basket/batch", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> optimizeShoppingBaskets(
+            @RequestBody List<BasketRequest> baskets,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (baskets.size() > basketService.getMaxBatchSize()) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        if (baskets.stream().anyMatch(Objects::isNull)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        // One JSON result per line, written as the baskets finish
+        StreamingResponseBody body = out -> basketService.optimizeShoppingBaskets(baskets, date, result -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok(body);
+    }
+
+    @PostMapping("/optimize-basket/split")
+    public SplitBasketResult optimizeSplitBasket(
+            @RequestBody List<String> productIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "2") int maxStores,
+            @RequestParam(defaultValue = "0") double storePenalty) {
+        return basketService.optimizeSplitBasket(productIds, date, maxStores, storePenalty);
+    }
+
     @GetMapping("/new-discounts")
-    public List<Product> getNewDiscounts(
+    public ResponseEntity<List<Product>> getNewDiscounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ListingResponses.list(productService.listNewDiscounts(since), cursor, limit);
+    }
+
+    @GetMapping(value = "/new-discounts", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamNewDiscounts(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
-        return productService.getNewDiscounts(since);
+        return ListingResponses.stream(productService.listNewDiscounts(since), objectMapper);
     }
 }
\ No newline at end of file
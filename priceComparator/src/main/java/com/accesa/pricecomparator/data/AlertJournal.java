@@ -0,0 +1,701 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.PriceAlert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable store of price alerts: an append-only journal of create, delete and trigger
+ * records, plus a compacted snapshot of every alert. Records are written by one journal
+ * thread, which takes whatever is queued, writes it in one go and fsyncs once for the
+ * whole batch (group commit), so concurrent writers share the cost of a flush.
+ *
+ * The journal is split into segments (alerts-N.journal): a header, then records of
+ * [payload length][CRC32 of payload][payload]. A record torn by a crash fails its length
+ * or checksum and ends replay of its segment. Every {@code snapshot-every} records the
+ * journal moves on to a new segment and the snapshot (alerts.snapshot) is rewritten from
+ * the live alerts in the background; it covers every segment up to the one just closed,
+ * and those segments are then deleted. Recovery loads the snapshot and replays the newer
+ * segments only. Replay is idempotent, so records that are both in the snapshot and in a
+ * newer segment are harmless.
+ */
+@Slf4j
+@Component
+public class AlertJournal {
+
+    private static final int JOURNAL_MAGIC = 0x50434a4c; // "PCJL"
+    private static final int SNAPSHOT_MAGIC = 0x50434153; // "PCAS"
+    // Bumped whenever the record layout changes; files of another version are not read
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte CREATE = 1;
+    private static final byte DELETE = 2;
+    private static final byte TRIGGER = 3;
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    // Records written (and fsynced) together at most
+    private static final int MAX_BATCH = 4096;
+
+    private static final String SNAPSHOT_FILE = "alerts.snapshot";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("alerts-(\\d+)\\.journal");
+
+    @Value("${app.alerts.journal.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.alerts.journal.directory:./alerts}")
+    private String directory = "./alerts";
+
+    // Without fsync, a record is durable once the OS flushes it (survives a process crash, not a power loss)
+    @Value("${app.alerts.journal.fsync:true}")
+    private boolean fsync = true;
+
+    // Journal records between two snapshots (0 = only on shutdown)
+    @Value("${app.alerts.journal.snapshot-every:100000}")
+    private long snapshotEvery = 100_000;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // Queued by close() to stop the journal thread once everything before it is written
+    private final Pending stop = new Pending(null);
+
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Thread journalThread;
+    private volatile boolean open;
+    private Supplier<Collection<PriceAlert>> liveAlerts;
+    private LongSupplier nextId;
+
+    // Only touched by the journal thread once open
+    private FileChannel segment;
+    private long segmentNumber;
+    private long recordsSinceSnapshot;
+    private volatile boolean snapshotPending;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rebuilds the alerts from the snapshot and the journal segments written after it
+     * @return Recovered alerts and the next free id
+     */
+    public Recovery recover() {
+        Path dir = Paths.get(directory);
+        Recovery recovery = new Recovery();
+        if (!enabled || !Files.isDirectory(dir)) {
+            return recovery;
+        }
+
+        long start = System.nanoTime();
+        long covered = readSnapshot(dir.resolve(SNAPSHOT_FILE), recovery);
+        int snapshotAlerts = recovery.alerts.size();
+        // New segments are numbered past the snapshot even when it left no segment behind
+        segmentNumber = covered;
+        for (Map.Entry<Long, Path> journal : segments(dir).entrySet()) {
+            segmentNumber = Math.max(segmentNumber, journal.getKey());
+            if (journal.getKey() > covered) {
+                replaySegment(journal.getValue(), recovery);
+            }
+        }
+        for (Long id : recovery.alerts.keySet()) {
+            recovery.nextId = Math.max(recovery.nextId, id + 1);
+        }
+        log.info("Recovered {} alerts ({} from the snapshot, {} journal records replayed) in {} ms",
+                recovery.alerts.size(), snapshotAlerts, recovery.replayedRecords, (System.nanoTime() - start) / 1_000_000);
+        return recovery;
+    }
+
+    /**
+     * Starts a new journal segment and the journal thread. Called once, after {@link #recover()}.
+     * @param alerts Live alerts, read when writing a snapshot
+     * @param nextId Next alert id, stored in snapshots
+     */
+    public synchronized void open(Supplier<Collection<PriceAlert>> alerts, LongSupplier nextId) {
+        if (!enabled || open) {
+            return;
+        }
+        this.liveAlerts = alerts;
+        this.nextId = nextId;
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            for (Long number : segments(dir).keySet()) {
+                segmentNumber = Math.max(segmentNumber, number);
+            }
+            openNextSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open alert journal in " + directory, e);
+        }
+
+        open = true;
+        journalThread = new Thread(this::writeLoop, "alert-journal");
+        journalThread.setDaemon(true);
+        journalThread.start();
+    }
+
+    /**
+     * Journals a new alert
+     * @return Future completed once the record is on disk
+     */
+    public CompletableFuture<Void> appendCreate(PriceAlert alert) {
+        return append(encode(out -> {
+            out.writeByte(CREATE);
+            writeAlert(out, alert);
+        }));
+    }
+
+    /**
+     * Journals new alerts together, as one write
+     * @return Future completed once every record is on disk
+     */
+    public CompletableFuture<Void> appendCreates(Collection<PriceAlert> alerts) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Records records = new Records(alerts.size() * 128);
+        for (PriceAlert alert : alerts) {
+            records.add(out -> {
+                out.writeByte(CREATE);
+                writeAlert(out, alert);
+            });
+        }
+        return append(records);
+    }
+
+    /**
+     * Journals a deleted alert
+     * @return Future completed once the record is on disk
+     */
+    public CompletableFuture<Void> appendDelete(long id) {
+        return append(encode(out -> {
+            out.writeByte(DELETE);
+            out.writeLong(id);
+        }));
+    }
+
+    /**
+     * Journals a triggered alert
+     * @return Future completed once the record is on disk
+     */
+    public CompletableFuture<Void> appendTrigger(PriceAlert alert) {
+        return append(encode(out -> {
+            out.writeByte(TRIGGER);
+            out.writeLong(alert.getId());
+            writeTrigger(out, alert);
+        }));
+    }
+
+    /**
+     * Writes everything still queued, then a final snapshot so the next start replays nothing
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        queue.add(stop);
+        try {
+            journalThread.join(TimeUnit.SECONDS.toMillis(30));
+            failQueued();
+            snapshotWriter.shutdown();
+            snapshotWriter.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshot(segmentNumber);
+        closeSegment();
+    }
+
+    private CompletableFuture<Void> append(Records records) {
+        Pending pending = new Pending(records);
+        if (!enabled) {
+            pending.written.complete(null);
+            return pending.written;
+        }
+        if (!open) {
+            pending.written.completeExceptionally(new IllegalStateException("Alert journal is not open"));
+            return pending.written;
+        }
+        queue.add(pending);
+        return pending.written;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            stopping = batch.remove(stop);
+            writeBatch(batch);
+            batch.clear();
+        }
+
+        failQueued();
+    }
+
+    // Anything queued after the stop marker is refused rather than left hanging
+    private void failQueued() {
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.written.completeExceptionally(new IllegalStateException("Alert journal is closed"));
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int size = 0;
+            for (Pending pending : batch) {
+                size += pending.records.size();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            batch.forEach(pending -> buffer.put(pending.records.bytes(), 0, pending.records.size()));
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (fsync) {
+                segment.force(false);
+            }
+            batch.forEach(pending -> pending.written.complete(null));
+        } catch (IOException e) {
+            log.error("Failed to write {} alert journal records", batch.size(), e);
+            batch.forEach(pending -> pending.written.completeExceptionally(e));
+            return;
+        }
+
+        for (Pending pending : batch) {
+            recordsSinceSnapshot += pending.records.count;
+        }
+        // While a snapshot is still being written, the next one waits rather than queueing up
+        if (snapshotEvery > 0 && recordsSinceSnapshot >= snapshotEvery && !snapshotPending) {
+            recordsSinceSnapshot = 0;
+            try {
+                // Everything journaled so far is in the live alerts, so a snapshot taken from
+                // now on covers every segment up to the one being closed
+                long covered = segmentNumber;
+                openNextSegment();
+                snapshotPending = true;
+                snapshotWriter.execute(() -> {
+                    try {
+                        writeSnapshot(covered);
+                    } finally {
+                        snapshotPending = false;
+                    }
+                });
+            } catch (IOException e) {
+                log.error("Failed to start a new alert journal segment", e);
+            }
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        segmentNumber++;
+        Path path = Paths.get(directory).resolve(segmentName(segmentNumber));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES).putInt(JOURNAL_MAGIC).putInt(FORMAT_VERSION);
+        header.flip();
+        segment.write(header);
+        if (fsync) {
+            segment.force(true);
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force(true);
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close alert journal segment {}", segmentNumber, e);
+        }
+        segment = null;
+    }
+
+    /**
+     * Replaces the snapshot with the live alerts, then deletes the segments it covers. The
+     * file is replaced atomically, so a crash leaves the previous snapshot and segments.
+     */
+    private void writeSnapshot(long coveredSegment) {
+        long start = System.nanoTime();
+        Path dir = Paths.get(directory).toAbsolutePath();
+        Path path = dir.resolve(SNAPSHOT_FILE);
+        Path temp = null;
+        try {
+            List<PriceAlert> alerts = new ArrayList<>(liveAlerts.get());
+            temp = Files.createTempFile(dir, SNAPSHOT_FILE, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new ChecksumChannelStream(channel, crc), 64 * 1024));
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(coveredSegment);
+                out.writeLong(nextId.getAsLong());
+                out.writeInt(alerts.size());
+                for (PriceAlert alert : alerts) {
+                    writeAlert(out, alert);
+                    out.writeBoolean(alert.getTriggeredAt() != null);
+                    if (alert.getTriggeredAt() != null) {
+                        writeTrigger(out, alert);
+                    }
+                }
+                out.flush();
+                ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue());
+                checksum.flip();
+                while (checksum.hasRemaining()) {
+                    channel.write(checksum);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (Map.Entry<Long, Path> journal : segments(dir).entrySet()) {
+                if (journal.getKey() <= coveredSegment) {
+                    Files.deleteIfExists(journal.getValue());
+                }
+            }
+            log.info("Wrote alert snapshot {} ({} alerts) in {} ms",
+                    path, alerts.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write alert snapshot {}, keeping the journal segments", path, e);
+            // Gone already if the move went through
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException deleteFailure) {
+                    log.warn("Failed to delete {}", temp, deleteFailure);
+                }
+            }
+        }
+    }
+
+    // Returns the last segment the snapshot covers (0 if there is no snapshot)
+    private static long readSnapshot(Path path, Recovery recovery) {
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bodyLength = (int) channel.size() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(bodyLength);
+            crc.update(body);
+            if (buffer.getLong(bodyLength) != crc.getValue()) {
+                throw new IllegalStateException("Alert snapshot " + path + " is corrupt (checksum mismatch)");
+            }
+
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("Alert snapshot " + path + " has an unknown format");
+            }
+            long covered = buffer.getLong();
+            recovery.nextId = Math.max(recovery.nextId, buffer.getLong());
+            int count = buffer.getInt();
+            buffer.limit(bodyLength);
+            for (int i = 0; i < count; i++) {
+                PriceAlert alert = readAlert(buffer);
+                if (buffer.get() != 0) {
+                    readTrigger(buffer, alert);
+                }
+                recovery.alerts.put(alert.getId(), alert);
+            }
+            return covered;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            // The segments it covered are gone, so starting without it would silently lose alerts
+            throw new IllegalStateException("Cannot read alert snapshot " + path, e);
+        }
+    }
+
+    private static void replaySegment(Path path, Recovery recovery) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 2 * Integer.BYTES
+                    || buffer.getInt() != JOURNAL_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.warn("Alert journal segment {} has no valid header, skipping it", path);
+                return;
+            }
+
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= 2 * Integer.BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    log.warn("Alert journal segment {} ends with a torn record, ignoring its last {} bytes",
+                            path, buffer.remaining() + 2 * Integer.BYTES);
+                    return;
+                }
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Alert journal segment {} has a corrupt record, ignoring the rest", path);
+                    return;
+                }
+                apply(payload, recovery);
+                buffer.position(buffer.position() + length);
+                recovery.replayedRecords++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay alert journal segment " + path, e);
+        }
+    }
+
+    private static void apply(ByteBuffer in, Recovery recovery) throws IOException {
+        byte type = in.get();
+        if (type == CREATE) {
+            PriceAlert alert = readAlert(in);
+            recovery.alerts.put(alert.getId(), alert);
+        } else if (type == DELETE) {
+            recovery.alerts.remove(in.getLong());
+        } else if (type == TRIGGER) {
+            PriceAlert alert = recovery.alerts.get(in.getLong());
+            if (alert != null) {
+                readTrigger(in, alert);
+            }
+        } else {
+            throw new IOException("Unknown alert journal record type " + type);
+        }
+    }
+
+    private static Map<Long, Path> segments(Path dir) {
+        Map<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list alert journal directory " + dir, e);
+        }
+        return segments;
+    }
+
+    private static String segmentName(long number) {
+        return String.format("alerts-%010d.journal", number);
+    }
+
+    // Encodes a single record; runs on the caller's thread
+    private static Records encode(RecordWriter writer) {
+        Records records = new Records(128);
+        records.add(writer);
+        return records;
+    }
+
+    private static void writeAlert(DataOutputStream out, PriceAlert alert) throws IOException {
+        out.writeLong(alert.getId());
+        writeString(out, alert.getProductId());
+        writeString(out, alert.getProductName());
+        writeString(out, alert.getStore());
+        out.writeDouble(alert.getTargetPrice() != null ? alert.getTargetPrice() : Double.NaN);
+        writeString(out, alert.getUserId());
+        writeTime(out, alert.getCreatedAt());
+    }
+
+    private static PriceAlert readAlert(ByteBuffer in) {
+        PriceAlert alert = new PriceAlert();
+        alert.setId(in.getLong());
+        alert.setProductId(readString(in));
+        alert.setProductName(readString(in));
+        alert.setStore(readString(in));
+        double targetPrice = in.getDouble();
+        alert.setTargetPrice(Double.isNaN(targetPrice) ? null : targetPrice);
+        alert.setUserId(readString(in));
+        alert.setCreatedAt(readTime(in));
+        return alert;
+    }
+
+    private static void writeTrigger(DataOutputStream out, PriceAlert alert) throws IOException {
+        // Trigger details never change once set, so these reads agree even while the alert is being deleted
+        writeTime(out, alert.getTriggeredAt());
+        writeString(out, alert.getTriggeredStore());
+        out.writeDouble(alert.getTriggeredPrice() != null ? alert.getTriggeredPrice() : Double.NaN);
+    }
+
+    private static void readTrigger(ByteBuffer in, PriceAlert alert) {
+        LocalDateTime triggeredAt = readTime(in);
+        String store = readString(in);
+        double price = in.getDouble();
+        alert.restoreTriggered(triggeredAt, store, Double.isNaN(price) ? null : price);
+    }
+
+    // UTF-8 bytes after their length (-1 for null), so reading is one decode per string
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time != null ? time.toLocalDate().toEpochDay() : NULL_LONG);
+        out.writeLong(time != null ? time.toLocalTime().toNanoOfDay() : NULL_LONG);
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        long day = in.getLong();
+        long nanos = in.getLong();
+        return day == NULL_LONG ? null : LocalDateTime.of(LocalDate.ofEpochDay(day), LocalTime.ofNanoOfDay(nanos));
+    }
+
+    /**
+     * Alerts rebuilt from disk
+     */
+    public static final class Recovery {
+        private final Map<Long, PriceAlert> alerts = new HashMap<>();
+        private long nextId = 1;
+        private int replayedRecords;
+
+        /**
+         * Recovered alerts by id
+         */
+        public Map<Long, PriceAlert> getAlerts() {
+            return alerts;
+        }
+
+        public long getNextId() {
+            return nextId;
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class Pending {
+        private final Records records;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Pending(Records records) {
+            this.records = records;
+        }
+    }
+
+    // Records framed as [length][CRC32][payload], back to back
+    private static final class Records extends ByteArrayOutputStream {
+        private final DataOutputStream out = new DataOutputStream(this);
+        private int count;
+
+        Records(int capacity) {
+            super(capacity);
+        }
+
+        void add(RecordWriter writer) {
+            try {
+                int start = size();
+                out.writeInt(0);
+                out.writeInt(0);
+                writer.write(out);
+                out.flush();
+
+                int length = size() - start - 2 * Integer.BYTES;
+                CRC32 crc = new CRC32();
+                crc.update(buf, start + 2 * Integer.BYTES, length);
+                ByteBuffer.wrap(buf, start, 2 * Integer.BYTES).putInt(length).putInt((int) crc.getValue());
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+
+    // Writes to a channel while updating a checksum
+    private static final class ChecksumChannelStream extends java.io.OutputStream {
+        private final FileChannel channel;
+        private final CRC32 crc;
+
+        ChecksumChannelStream(FileChannel channel, CRC32 crc) {
+            this.channel = channel;
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            crc.update(bytes, offset, length);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
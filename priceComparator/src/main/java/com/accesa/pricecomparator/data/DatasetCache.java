@@ -0,0 +1,374 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.Product;
+import com.accesa.pricecomparator.util.FileFingerprint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary cache of a fully joined dataset (products with applied discounts, discounts and
+ * their store/date partitions), so a restart does not have to re-parse every CSV file.
+ * The cache records the size and modification time of the files it was built from and
+ * is only used while the data directory still matches.
+ *
+ * Layout: header, file manifest, string dictionary, product partitions, discount partitions,
+ * then a CRC32 of everything before it. Strings are stored once in the dictionary and
+ * referenced by id; dates are epoch days. A cache that fails to read for any reason is
+ * ignored and the dataset is parsed from the CSV files instead.
+ */
+@Slf4j
+@Component
+public class DatasetCache {
+
+    private static final int MAGIC = 0x50434453; // "PCDS"
+    // Bumped whenever the stored fields or the discount join change, so older caches are rebuilt
+    private static final int FORMAT_VERSION = 4;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    @Value("${app.data.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.data.cache.file:./cache/dataset.bin}")
+    private String cacheFile = "./cache/dataset.bin";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the cached dataset if it was built from exactly the given files
+     * @param files Current fingerprints of the data files, by path
+     * @param version Version number to give the loaded snapshot
+     * @return Cached snapshot, or empty if there is no valid cache
+     */
+    public Optional<DatasetSnapshot> read(Map<String, FileFingerprint> files, long version) {
+        Path path = Paths.get(cacheFile);
+        if (!enabled || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                log.warn("Dataset cache {} is too large to map, ignoring it", path);
+                return Optional.empty();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.info("Dataset cache {} has an unknown format, ignoring it", path);
+                return Optional.empty();
+            }
+            // Checked before parsing, so a corrupt body cannot be read as data
+            int bodyLength = buffer.limit() - Long.BYTES;
+            ByteBuffer body = buffer.duplicate();
+            body.position(0);
+            body.limit(bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (buffer.getLong(bodyLength) != crc.getValue()) {
+                log.warn("Dataset cache {} is corrupt (checksum mismatch), ignoring it", path);
+                return Optional.empty();
+            }
+            buffer.limit(bodyLength);
+            if (!manifestMatches(buffer, files)) {
+                log.info("Dataset cache {} is stale, data files changed since it was written", path);
+                return Optional.empty();
+            }
+
+            String[] strings = readStrings(buffer);
+            Map<String, Map<LocalDate, List<Product>>> products = readProducts(buffer, strings);
+            Map<String, Map<LocalDate, List<Discount>>> discounts = readDiscounts(buffer, strings);
+            return Optional.of(DatasetSnapshot.of(version, products, discounts));
+        } catch (IOException | RuntimeException e) {
+            // The cache is only a shortcut: whatever is wrong with it, fall back to the CSV files
+            log.warn("Failed to read dataset cache {}, ignoring it", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the snapshot to the cache file. The file is replaced atomically, so a crash
+     * while writing leaves either the previous cache or no cache behind.
+     * @param snapshot Snapshot to store
+     * @param files Fingerprints of the data files the snapshot was built from
+     */
+    public void write(DatasetSnapshot snapshot, Collection<FileFingerprint> files) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Path path = Paths.get(cacheFile).toAbsolutePath();
+        Path temp = null;
+        try {
+            Files.createDirectories(path.getParent());
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeManifest(out, files);
+
+                StringDictionary dictionary = new StringDictionary();
+                snapshot.getProducts().forEach(product -> addStrings(dictionary, product));
+                snapshot.getDiscounts().forEach(discount -> addStrings(dictionary, discount));
+                out.writeInt(dictionary.size());
+                for (String value : dictionary.values()) {
+                    writeString(out, value);
+                }
+
+                writeProducts(out, snapshot.getProductsByStoreAndDate(), dictionary);
+                writeDiscounts(out, snapshot.getDiscountsByStoreAndDate(), dictionary);
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote dataset cache {} ({} bytes) in {} ms",
+                    path, Files.size(path), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Failed to write dataset cache {}", path, e);
+        } finally {
+            // Already gone once it was moved into place
+            if (temp != null) {
+                deleteTemp(temp);
+            }
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", temp, e);
+        }
+    }
+
+    private static void writeManifest(DataOutputStream out, Collection<FileFingerprint> files) throws IOException {
+        out.writeInt(files.size());
+        for (FileFingerprint file : files) {
+            writeString(out, file.getPath());
+            out.writeLong(file.getSize());
+            out.writeLong(file.getLastModified());
+        }
+    }
+
+    private static boolean manifestMatches(ByteBuffer buffer, Map<String, FileFingerprint> files) {
+        int count = buffer.getInt();
+        if (count != files.size()) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            FileFingerprint current = files.get(readString(buffer));
+            long size = buffer.getLong();
+            long lastModified = buffer.getLong();
+            if (current == null || current.getSize() != size || current.getLastModified() != lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeProducts(DataOutputStream out, Map<String, Map<LocalDate, List<Product>>> partitions,
+                                      StringDictionary dictionary) throws IOException {
+        out.writeInt(partitions.values().stream().mapToInt(Map::size).sum());
+        for (Map.Entry<String, Map<LocalDate, List<Product>>> byStore : partitions.entrySet()) {
+            for (Map.Entry<LocalDate, List<Product>> partition : byStore.getValue().entrySet()) {
+                out.writeInt(dictionary.idOf(byStore.getKey()));
+                out.writeInt(epochDay(partition.getKey()));
+                out.writeInt(partition.getValue().size());
+                for (Product product : partition.getValue()) {
+                    out.writeInt(dictionary.idOf(product.getProductId()));
+                    out.writeInt(dictionary.idOf(product.getProductName()));
+                    out.writeInt(dictionary.idOf(product.getProductCategory()));
+                    out.writeInt(dictionary.idOf(product.getBrand()));
+                    out.writeDouble(nullable(product.getPackageQuantity()));
+                    out.writeInt(dictionary.idOf(product.getPackageUnit()));
+                    out.writeDouble(nullable(product.getPrice()));
+                    out.writeInt(dictionary.idOf(product.getCurrency()));
+                    out.writeDouble(nullable(product.getDiscountedPrice()));
+                    out.writeInt(nullable(product.getDiscountPercentage()));
+                    out.writeDouble(nullable(product.getPricePerUnit()));
+                    out.writeInt(dictionary.idOf(product.getBaseUnit()));
+                }
+            }
+        }
+    }
+
+    private static Map<String, Map<LocalDate, List<Product>>> readProducts(ByteBuffer buffer, String[] strings) {
+        Map<String, Map<LocalDate, List<Product>>> partitions = new TreeMap<>();
+        int partitionCount = buffer.getInt();
+        for (int p = 0; p < partitionCount; p++) {
+            String store = strings[buffer.getInt()];
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+            int rows = buffer.getInt();
+
+            List<Product> products = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                Product product = new Product();
+                product.setProductId(string(strings, buffer.getInt()));
+                product.setProductName(string(strings, buffer.getInt()));
+                product.setProductCategory(string(strings, buffer.getInt()));
+                product.setBrand(string(strings, buffer.getInt()));
+                product.setPackageQuantity(boxed(buffer.getDouble()));
+                product.setPackageUnit(string(strings, buffer.getInt()));
+                product.setPrice(boxed(buffer.getDouble()));
+                product.setCurrency(string(strings, buffer.getInt()));
+                product.setDiscountedPrice(boxed(buffer.getDouble()));
+                product.setDiscountPercentage(boxed(buffer.getInt()));
+                product.setPricePerUnit(boxed(buffer.getDouble()));
+                product.setBaseUnit(string(strings, buffer.getInt()));
+                product.setStore(store);
+                product.setDate(date);
+                products.add(product);
+            }
+            partitions.computeIfAbsent(store, k -> new TreeMap<>()).put(date, products);
+        }
+        return partitions;
+    }
+
+    private static void writeDiscounts(DataOutputStream out, Map<String, Map<LocalDate, List<Discount>>> partitions,
+                                       StringDictionary dictionary) throws IOException {
+        out.writeInt(partitions.values().stream().mapToInt(Map::size).sum());
+        for (Map.Entry<String, Map<LocalDate, List<Discount>>> byStore : partitions.entrySet()) {
+            for (Map.Entry<LocalDate, List<Discount>> partition : byStore.getValue().entrySet()) {
+                out.writeInt(dictionary.idOf(byStore.getKey()));
+                out.writeInt(epochDay(partition.getKey()));
+                out.writeInt(partition.getValue().size());
+                for (Discount discount : partition.getValue()) {
+                    out.writeInt(dictionary.idOf(discount.getProductId()));
+                    out.writeInt(dictionary.idOf(discount.getProductName()));
+                    out.writeInt(dictionary.idOf(discount.getBrand()));
+                    out.writeDouble(nullable(discount.getPackageQuantity()));
+                    out.writeInt(dictionary.idOf(discount.getPackageUnit()));
+                    out.writeInt(dictionary.idOf(discount.getProductCategory()));
+                    out.writeInt(epochDay(discount.getFromDate()));
+                    out.writeInt(epochDay(discount.getToDate()));
+                    out.writeInt(nullable(discount.getPercentageDiscount()));
+                }
+            }
+        }
+    }
+
+    private static Map<String, Map<LocalDate, List<Discount>>> readDiscounts(ByteBuffer buffer, String[] strings) {
+        Map<String, Map<LocalDate, List<Discount>>> partitions = new TreeMap<>();
+        int partitionCount = buffer.getInt();
+        for (int p = 0; p < partitionCount; p++) {
+            String store = strings[buffer.getInt()];
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+            int rows = buffer.getInt();
+
+            List<Discount> discounts = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                Discount discount = new Discount();
+                discount.setProductId(string(strings, buffer.getInt()));
+                discount.setProductName(string(strings, buffer.getInt()));
+                discount.setBrand(string(strings, buffer.getInt()));
+                discount.setPackageQuantity(boxed(buffer.getDouble()));
+                discount.setPackageUnit(string(strings, buffer.getInt()));
+                discount.setProductCategory(string(strings, buffer.getInt()));
+                discount.setFromDate(date(buffer.getInt()));
+                discount.setToDate(date(buffer.getInt()));
+                discount.setPercentageDiscount(boxed(buffer.getInt()));
+                discount.setStore(store);
+                discount.setDiscountDate(date);
+                discounts.add(discount);
+            }
+            partitions.computeIfAbsent(store, k -> new TreeMap<>()).put(date, discounts);
+        }
+        return partitions;
+    }
+
+    private static void addStrings(StringDictionary dictionary, Product product) {
+        dictionary.add(product.getStore());
+        dictionary.add(product.getProductId());
+        dictionary.add(product.getProductName());
+        dictionary.add(product.getProductCategory());
+        dictionary.add(product.getBrand());
+        dictionary.add(product.getPackageUnit());
+        dictionary.add(product.getCurrency());
+        dictionary.add(product.getBaseUnit());
+    }
+
+    private static void addStrings(StringDictionary dictionary, Discount discount) {
+        dictionary.add(discount.getStore());
+        dictionary.add(discount.getProductId());
+        dictionary.add(discount.getProductName());
+        dictionary.add(discount.getBrand());
+        dictionary.add(discount.getPackageUnit());
+        dictionary.add(discount.getProductCategory());
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(buffer);
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String string(String[] strings, int ref) {
+        return ref == StringDictionary.NULL_ID ? null : strings[ref];
+    }
+
+    // Nulls are stored as NaN / Integer.MIN_VALUE, which never occur in the data files
+    private static double nullable(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static int nullable(Integer value) {
+        return value != null ? value : NULL_INT;
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static Integer boxed(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : NULL_INT;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
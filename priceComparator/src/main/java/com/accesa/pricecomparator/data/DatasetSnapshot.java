@@ -0,0 +1,252 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One published version of the loaded data. A snapshot is immutable once built: every
+ * list and map it hands out is a read-only view, so readers can use it without copying
+ * or locking. Reloads build the next snapshot alongside and publish it atomically.
+ */
+public final class DatasetSnapshot {
+
+    public static final DatasetSnapshot EMPTY = new DatasetSnapshot(0,
+            Collections.emptyMap(), Collections.emptyMap(), null);
+
+    private final long version;
+    private final List<Product> products;
+    private final List<Discount> discounts;
+    private final Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate;
+    private final Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate;
+    // Indexes over the two lists above, kept alongside them rather than instead of them
+    private final ProductColumns productColumns;
+    private final DiscountColumns discountColumns;
+    private final ProductIndex productIndex;
+    private final DiscountIntervalIndex discountIntervals;
+    private final DiscountTimelines discountTimelines;
+    private final Leaderboards bestProductDiscounts;
+    private final Map<String, Leaderboards> bestValuePerUnit;
+    private final Leaderboards bestDiscounts;
+    private final ProductSearchIndex productSearch;
+    private final EquivalenceClasses equivalenceClasses;
+
+    private DatasetSnapshot(long version,
+                            Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate,
+                            Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate,
+                            DiscountTimelines discountTimelines) {
+        this.version = version;
+        this.productsByStoreAndDate = freeze(productsByStoreAndDate);
+        this.discountsByStoreAndDate = freeze(discountsByStoreAndDate);
+        this.products = flatten(this.productsByStoreAndDate);
+        this.discounts = flatten(this.discountsByStoreAndDate);
+        this.productColumns = new ProductColumns(products);
+        this.discountColumns = new DiscountColumns(discounts);
+        this.productIndex = new ProductIndex(products);
+        this.discountIntervals = new DiscountIntervalIndex(discounts);
+        this.discountTimelines = discountTimelines != null ? discountTimelines
+                : new DiscountTimelines(this.discountsByStoreAndDate);
+
+        ProductColumns pc = productColumns;
+        DiscountColumns dc = discountColumns;
+        // Keys are negated where the highest value ranks first
+        this.bestProductDiscounts = new Leaderboards(pc.size(),
+                row -> pc.discountPercentage(row) > 0 ? -pc.discountPercentage(row) : Double.NaN,
+                pc::category, pc.categoryNames(), pc::store, pc.storeNames());
+        this.bestValuePerUnit = rankByBaseUnit(pc);
+        this.bestDiscounts = new Leaderboards(dc.size(), row -> -dc.percentage(row),
+                dc::category, dc.categoryNames(), dc::store, dc.storeNames());
+        this.productSearch = new ProductSearchIndex(productColumns);
+        this.equivalenceClasses = new EquivalenceClasses(productColumns);
+    }
+
+    /**
+     * Builds a snapshot from store/date partitions. Partition lists are copied once into
+     * immutable lists; lists taken from an earlier snapshot are reused as they are.
+     * @param version Version number of the new snapshot
+     * @param productsByStoreAndDate Products by store and file date
+     * @param discountsByStoreAndDate Discounts by store and file date
+     * @return Immutable snapshot
+     */
+    public static DatasetSnapshot of(long version,
+                                     Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate,
+                                     Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate) {
+        return new DatasetSnapshot(version, productsByStoreAndDate, discountsByStoreAndDate, null);
+    }
+
+    /**
+     * Builds a snapshot reusing discount timelines that were already built from the same
+     * discounts (e.g. to join them into the products)
+     * @param version Version number of the new snapshot
+     * @param productsByStoreAndDate Products by store and file date
+     * @param discountsByStoreAndDate Discounts by store and file date
+     * @param discountTimelines Timelines built from discountsByStoreAndDate
+     * @return Immutable snapshot
+     */
+    public static DatasetSnapshot of(long version,
+                                     Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate,
+                                     Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate,
+                                     DiscountTimelines discountTimelines) {
+        return new DatasetSnapshot(version, productsByStoreAndDate, discountsByStoreAndDate, discountTimelines);
+    }
+
+    /**
+     * Monotonically increasing version, usable as a cache key by other layers
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public List<Discount> getDiscounts() {
+        return discounts;
+    }
+
+    public Map<String, Map<LocalDate, List<Product>>> getProductsByStoreAndDate() {
+        return productsByStoreAndDate;
+    }
+
+    public Map<String, Map<LocalDate, List<Discount>>> getDiscountsByStoreAndDate() {
+        return discountsByStoreAndDate;
+    }
+
+    /**
+     * Primitive column store over {@link #getProducts()}, for scans over the whole catalog.
+     * It holds copies of the products' fields in addition to the list.
+     */
+    public ProductColumns getProductColumns() {
+        return productColumns;
+    }
+
+    /**
+     * Primitive column store over {@link #getDiscounts()}
+     */
+    public DiscountColumns getDiscountColumns() {
+        return discountColumns;
+    }
+
+    /**
+     * Per-product price series by store, for lookups by product ID
+     */
+    public ProductIndex getProductIndex() {
+        return productIndex;
+    }
+
+    /**
+     * Per-store interval tree over discount periods, for "active on" and "active in range" queries
+     */
+    public DiscountIntervalIndex getDiscountIntervals() {
+        return discountIntervals;
+    }
+
+    /**
+     * Per-store, per-product discount timelines, for the discount running on any day
+     */
+    public DiscountTimelines getDiscountTimelines() {
+        return discountTimelines;
+    }
+
+    /**
+     * Product rows ({@link #getProductColumns()}) ranked by highest discount percentage
+     */
+    public Leaderboards getBestProductDiscounts() {
+        return bestProductDiscounts;
+    }
+
+    /**
+     * Product rows ({@link #getProductColumns()}) ranked by lowest price per unit, one
+     * ranking per base unit (kg, l, buc...), in unit name order
+     */
+    public Map<String, Leaderboards> getBestValuePerUnit() {
+        return bestValuePerUnit;
+    }
+
+    /**
+     * Discount rows ({@link #getDiscountColumns()}) ranked by highest percentage
+     */
+    public Leaderboards getBestDiscounts() {
+        return bestDiscounts;
+    }
+
+    /**
+     * Folded text index over product name, brand and category
+     */
+    public ProductSearchIndex getProductSearch() {
+        return productSearch;
+    }
+
+    /**
+     * Products that can replace each other in a basket (same name, category and unit)
+     */
+    public EquivalenceClasses getEquivalenceClasses() {
+        return equivalenceClasses;
+    }
+
+    public List<Product> getProducts(String store, LocalDate date) {
+        return productsByStoreAndDate
+                .getOrDefault(store, Collections.emptyMap())
+                .getOrDefault(date, Collections.emptyList());
+    }
+
+    public List<Discount> getDiscounts(String store, LocalDate date) {
+        return discountsByStoreAndDate
+                .getOrDefault(store, Collections.emptyMap())
+                .getOrDefault(date, Collections.emptyList());
+    }
+
+    // A price per kg and a price per piece cannot be compared, so every base unit is ranked apart
+    private static Map<String, Leaderboards> rankByBaseUnit(ProductColumns pc) {
+        int[] counts = new int[pc.unitNames().size()];
+        for (int row = 0; row < pc.size(); row++) {
+            if (!Double.isNaN(pc.pricePerUnit(row)) && pc.baseUnit(row) != StringDictionary.NULL_ID) {
+                counts[pc.baseUnit(row)]++;
+            }
+        }
+        int[][] rowsByUnit = new int[counts.length][];
+        for (int unit = 0; unit < counts.length; unit++) {
+            rowsByUnit[unit] = new int[counts[unit]];
+            counts[unit] = 0;
+        }
+        for (int row = 0; row < pc.size(); row++) {
+            int unit = pc.baseUnit(row);
+            if (!Double.isNaN(pc.pricePerUnit(row)) && unit != StringDictionary.NULL_ID) {
+                rowsByUnit[unit][counts[unit]++] = row;
+            }
+        }
+
+        Map<String, Leaderboards> byUnit = new TreeMap<>();
+        for (int unit = 0; unit < rowsByUnit.length; unit++) {
+            if (rowsByUnit[unit].length > 0) {
+                byUnit.put(pc.unitNames().get(unit), new Leaderboards(rowsByUnit[unit], pc::pricePerUnit,
+                        pc::category, pc.categoryNames(), pc::store, pc.storeNames()));
+            }
+        }
+        return Collections.unmodifiableMap(byUnit);
+    }
+
+    private static <T> Map<String, Map<LocalDate, List<T>>> freeze(Map<String, Map<LocalDate, List<T>>> partitions) {
+        Map<String, Map<LocalDate, List<T>>> frozen = new TreeMap<>();
+        partitions.forEach((store, byDate) -> {
+            Map<LocalDate, List<T>> frozenByDate = new TreeMap<>();
+            // List.copyOf returns an already immutable list unchanged
+            byDate.forEach((date, rows) -> frozenByDate.put(date, List.copyOf(rows)));
+            frozen.put(store, Collections.unmodifiableMap(frozenByDate));
+        });
+        return Collections.unmodifiableMap(frozen);
+    }
+
+    private static <T> List<T> flatten(Map<String, Map<LocalDate, List<T>>> partitions) {
+        List<T> rows = new ArrayList<>();
+        partitions.values().forEach(byDate -> byDate.values().forEach(rows::addAll));
+        return Collections.unmodifiableList(rows);
+    }
+}
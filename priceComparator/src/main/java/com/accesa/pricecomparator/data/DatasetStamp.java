@@ -0,0 +1,91 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.util.FileFingerprint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Identity of a published dataset for HTTP validators: a tag derived from the ingested
+ * files, so it stays the same across restarts and nodes serving the same files, and the
+ * time the data last changed.
+ */
+public final class DatasetStamp {
+
+    public static final DatasetStamp EMPTY = new DatasetStamp(0, "0", 0);
+
+    private final long version;
+    private final String tag;
+    private final long lastModified;
+
+    private DatasetStamp(long version, String tag, long lastModified) {
+        this.version = version;
+        this.tag = tag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Stamps a newly published dataset
+     * @param version Version of the published snapshot
+     * @param files Fingerprints of the files it was built from
+     * @param previous Stamp of the dataset it replaces
+     * @return Stamp whose last modification never goes backwards
+     */
+    public static DatasetStamp of(long version, Collection<FileFingerprint> files, DatasetStamp previous) {
+        List<FileFingerprint> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(FileFingerprint::getPath));
+
+        MessageDigest digest = sha256();
+        ByteBuffer numbers = ByteBuffer.allocate(2 * Long.BYTES);
+        long newest = 0;
+        for (FileFingerprint file : sorted) {
+            digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+            numbers.clear();
+            numbers.putLong(file.getSize()).putLong(file.getLastModified()).flip();
+            digest.update(numbers);
+            newest = Math.max(newest, file.getLastModified());
+        }
+        StringBuilder tag = new StringBuilder();
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 8; i++) {
+            tag.append(String.format("%02x", hash[i]));
+        }
+
+        // Removing a file, or restoring an older copy, changes the data without a newer file
+        long lastModified = newest > previous.lastModified ? newest : System.currentTimeMillis();
+        return new DatasetStamp(version, tag.toString(), lastModified);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Hex digest of the paths, sizes and modification times of the ingested files
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Newest modification time of the ingested files, in epoch milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
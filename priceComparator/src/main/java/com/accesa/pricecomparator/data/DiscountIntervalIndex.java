@@ -0,0 +1,173 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Discount;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Interval tree over discount validity periods ([fromDate, toDate], both inclusive),
+ * with one tree per store. Each tree is a sorted array read as an implicit balanced
+ * BST, where every node also stores the latest end date in its subtree. Answering
+ * "active on D" or "active in [A, B]" costs O(log n + k).
+ */
+public final class DiscountIntervalIndex {
+
+    private final List<Discount> discounts;
+    private final Map<String, IntervalTree> treesByStore;
+
+    public DiscountIntervalIndex(List<Discount> discounts) {
+        this.discounts = discounts;
+
+        Map<String, List<Integer>> rowsByStore = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int row = 0; row < discounts.size(); row++) {
+            Discount discount = discounts.get(row);
+            // Discounts without a period are never active
+            if (discount.getStore() != null && discount.getFromDate() != null && discount.getToDate() != null
+                    && !discount.getToDate().isBefore(discount.getFromDate())) {
+                rowsByStore.computeIfAbsent(discount.getStore(), k -> new ArrayList<>()).add(row);
+            }
+        }
+
+        Map<String, IntervalTree> trees = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        rowsByStore.forEach((store, rows) -> trees.put(store, new IntervalTree(discounts, rows)));
+        this.treesByStore = trees;
+    }
+
+    /**
+     * Gets discounts active on a day
+     * @param date Day to check
+     * @param store Store to search, or null for every store
+     * @return Active discounts in snapshot order
+     */
+    public List<Discount> activeOn(LocalDate date, String store) {
+        return activeBetween(date, date, store);
+    }
+
+    /**
+     * Gets discounts active on at least one day of a range
+     * @param from First day of the range
+     * @param to Last day of the range (inclusive)
+     * @param store Store to search, or null for every store
+     * @return Overlapping discounts in snapshot order
+     */
+    public List<Discount> activeBetween(LocalDate from, LocalDate to, String store) {
+        int[] rows = activeRowsBetween(from, to, store);
+        List<Discount> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(discounts.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the rows of discounts active on at least one day of a range
+     * @param from First day of the range
+     * @param to Last day of the range (inclusive)
+     * @param store Store to search, or null for every store
+     * @return Row numbers in {@link DatasetSnapshot#getDiscounts()}, in increasing order
+     */
+    public int[] activeRowsBetween(LocalDate from, LocalDate to, String store) {
+        Collection<IntervalTree> trees;
+        if (store != null) {
+            IntervalTree tree = treesByStore.get(store);
+            trees = tree != null ? List.of(tree) : List.of();
+        } else {
+            trees = treesByStore.values();
+        }
+
+        int start = (int) from.toEpochDay();
+        int end = (int) to.toEpochDay();
+        IntList rows = new IntList();
+        for (IntervalTree tree : trees) {
+            tree.collectOverlapping(start, end, rows);
+        }
+
+        // Row numbers follow the snapshot list, so sorting them restores its order
+        int[] sorted = rows.toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static final class IntervalTree {
+        private final int[] rows;
+        private final int[] from;
+        private final int[] to;
+        private final int[] maxEnd;
+
+        IntervalTree(List<Discount> discounts, List<Integer> storeRows) {
+            Integer[] byStart = storeRows.toArray(new Integer[0]);
+            Arrays.sort(byStart, Comparator.comparing(row -> discounts.get(row).getFromDate()));
+
+            int size = byStart.length;
+            rows = new int[size];
+            from = new int[size];
+            to = new int[size];
+            maxEnd = new int[size];
+            for (int i = 0; i < size; i++) {
+                Discount discount = discounts.get(byStart[i]);
+                rows[i] = byStart[i];
+                from[i] = (int) discount.getFromDate().toEpochDay();
+                to[i] = (int) discount.getToDate().toEpochDay();
+            }
+            computeMaxEnd(0, size - 1);
+        }
+
+        // The node of [lo, hi] is its midpoint; returns the latest end date in that subtree
+        private int computeMaxEnd(int lo, int hi) {
+            if (lo > hi) {
+                return Integer.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            maxEnd[mid] = Math.max(to[mid], Math.max(computeMaxEnd(lo, mid - 1), computeMaxEnd(mid + 1, hi)));
+            return maxEnd[mid];
+        }
+
+        void collectOverlapping(int start, int end, IntList out) {
+            collect(0, rows.length - 1, start, end, out);
+        }
+
+        private void collect(int lo, int hi, int start, int end, IntList out) {
+            if (lo > hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            // Nothing in this subtree is still running on the first day of the range
+            if (maxEnd[mid] < start) {
+                return;
+            }
+
+            collect(lo, mid - 1, start, end, out);
+            // This node and its right subtree all start after the range
+            if (from[mid] > end) {
+                return;
+            }
+            if (to[mid] >= start) {
+                out.add(rows[mid]);
+            }
+            collect(mid + 1, hi, start, end, out);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
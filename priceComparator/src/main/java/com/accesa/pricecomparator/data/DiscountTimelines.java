@@ -0,0 +1,206 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.DiscountSegment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Discount timelines per (store, productId), built from every loaded discount file. Each
+ * timeline is a sorted list of non-overlapping day segments holding the highest discount
+ * running on those days, so the discount for any (product, store, day) is a hash lookup
+ * plus a binary search, whichever file the discount was published in. Timelines are kept
+ * per store, so a reload rebuilds only the stores whose discounts changed.
+ */
+public final class DiscountTimelines {
+
+    // Store (ignoring case) -> productId -> timeline; the per-store maps are never modified
+    // once built, so later versions share those of unchanged stores
+    private final Map<String, Map<String, Timeline>> timelinesByStore;
+
+    // Merged history per product, filled on first request; lives as long as this snapshot
+    private final Map<String, List<DiscountSegment>> historyByProduct = new ConcurrentHashMap<>();
+
+    public DiscountTimelines(Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate) {
+        this(null, discountsByStoreAndDate, Collections.emptySet());
+    }
+
+    /**
+     * Builds the timelines of a new version of the discounts, reusing those of the stores
+     * that did not change
+     * @param previous Timelines of the previous version (null to build every store)
+     * @param discountsByStoreAndDate Discounts by store and file date
+     * @param changedStores Stores whose discounts may differ from the previous version
+     */
+    public DiscountTimelines(DiscountTimelines previous,
+                             Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate,
+                             Set<String> changedStores) {
+        Set<String> rebuilt = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        rebuilt.addAll(changedStores);
+        Map<String, Map<String, Timeline>> timelines = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (previous != null) {
+            previous.timelinesByStore.forEach((store, byProduct) -> {
+                if (!rebuilt.contains(store)) {
+                    timelines.put(store, byProduct);
+                }
+            });
+        }
+
+        Map<String, Map<String, List<Discount>>> building = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        discountsByStoreAndDate.forEach((partitionStore, byDate) -> {
+            if (previous != null && !rebuilt.contains(partitionStore)) {
+                return;
+            }
+            byDate.values().forEach(discounts -> {
+                for (Discount discount : discounts) {
+                    if (discount.getStore() == null || discount.getProductId() == null
+                            || discount.getPercentageDiscount() == null
+                            || discount.getFromDate() == null || discount.getToDate() == null
+                            || discount.getToDate().isBefore(discount.getFromDate())) {
+                        continue;
+                    }
+                    building
+                            .computeIfAbsent(discount.getStore(), k -> new HashMap<>())
+                            .computeIfAbsent(discount.getProductId(), k -> new ArrayList<>())
+                            .add(discount);
+                }
+            });
+        });
+        building.forEach((store, byProduct) -> {
+            Map<String, Timeline> storeTimelines = new HashMap<>(byProduct.size() * 2);
+            byProduct.forEach((productId, discounts) -> storeTimelines.put(productId, new Timeline(discounts)));
+            timelines.put(store, storeTimelines);
+        });
+        this.timelinesByStore = timelines;
+    }
+
+    /**
+     * Gets the highest discount for a product in a store on a day
+     * @param store Store name, matched ignoring case
+     * @param productId Product ID
+     * @param date Day to check
+     * @return Discount or null if none is running that day
+     */
+    public Discount bestOn(String store, String productId, LocalDate date) {
+        Timeline timeline = timelinesByStore.getOrDefault(store, Collections.emptyMap()).get(productId);
+        return timeline != null ? timeline.bestOn(date) : null;
+    }
+
+    /**
+     * Gets the discount history of a product as non-overlapping segments: per store, the
+     * discount actually applied on each day, with back-to-back days at the same percentage
+     * merged into one segment. Computed once per product and snapshot.
+     * @param productId Product ID
+     * @return Segments by store name, then start date (empty if the product never had a discount)
+     */
+    public List<DiscountSegment> getHistory(String productId) {
+        Map<String, Timeline> byStore = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        timelinesByStore.forEach((store, byProduct) -> {
+            Timeline timeline = byProduct.get(productId);
+            if (timeline != null) {
+                byStore.put(store, timeline);
+            }
+        });
+        if (byStore.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return historyByProduct.computeIfAbsent(productId, k -> buildHistory(byStore));
+    }
+
+    private static List<DiscountSegment> buildHistory(Map<String, Timeline> byStore) {
+        List<DiscountSegment> history = new ArrayList<>();
+        byStore.forEach((store, timeline) -> {
+            DiscountSegment previous = null;
+            for (int i = 0; i < timeline.starts.length; i++) {
+                int percentage = timeline.best[i].getPercentageDiscount();
+                if (previous != null && previous.getPercentage() == percentage
+                        && previous.getToDate().toEpochDay() + 1 == timeline.starts[i]) {
+                    previous.setToDate(LocalDate.ofEpochDay(timeline.ends[i]));
+                    continue;
+                }
+                previous = new DiscountSegment(store, LocalDate.ofEpochDay(timeline.starts[i]),
+                        LocalDate.ofEpochDay(timeline.ends[i]), percentage);
+                history.add(previous);
+            }
+        });
+        return Collections.unmodifiableList(history);
+    }
+
+    /**
+     * Non-overlapping [start, end] day segments (epoch days, inclusive) of one product in one store.
+     */
+    static final class Timeline {
+        private final int[] starts;
+        private final int[] ends;
+        private final Discount[] best;
+
+        Timeline(List<Discount> discounts) {
+            // Every from date and every day after a to date may change the winner
+            int[] boundaries = new int[discounts.size() * 2];
+            for (int i = 0; i < discounts.size(); i++) {
+                boundaries[2 * i] = (int) discounts.get(i).getFromDate().toEpochDay();
+                boundaries[2 * i + 1] = (int) discounts.get(i).getToDate().toEpochDay() + 1;
+            }
+            Arrays.sort(boundaries);
+
+            List<int[]> segments = new ArrayList<>();
+            List<Discount> winners = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                int start = boundaries[i];
+                int end = boundaries[i + 1] - 1;
+                if (end < start) {
+                    continue;
+                }
+
+                // Highest percentage wins; on a tie the discount loaded first is kept
+                Discount winner = null;
+                for (Discount discount : discounts) {
+                    if (discount.getFromDate().toEpochDay() <= start && discount.getToDate().toEpochDay() >= end
+                            && (winner == null || discount.getPercentageDiscount() > winner.getPercentageDiscount())) {
+                        winner = discount;
+                    }
+                }
+                if (winner == null) {
+                    continue;
+                }
+
+                // Extend the previous segment when the same discount keeps winning
+                int last = segments.size() - 1;
+                if (last >= 0 && winners.get(last) == winner && segments.get(last)[1] == start - 1) {
+                    segments.get(last)[1] = end;
+                } else {
+                    segments.add(new int[]{start, end});
+                    winners.add(winner);
+                }
+            }
+
+            starts = new int[segments.size()];
+            ends = new int[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                starts[i] = segments.get(i)[0];
+                ends[i] = segments.get(i)[1];
+            }
+            best = winners.toArray(new Discount[0]);
+        }
+
+        Discount bestOn(LocalDate date) {
+            int day = (int) date.toEpochDay();
+            int index = Arrays.binarySearch(starts, day);
+            // Otherwise take the last segment starting before the day
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 && day <= ends[index] ? best[index] : null;
+        }
+    }
+}
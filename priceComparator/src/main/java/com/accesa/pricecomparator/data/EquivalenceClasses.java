@@ -0,0 +1,132 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.util.UnitNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Products that can stand in for each other in a basket, precomputed once per snapshot.
+ * Two products are equivalent when they share the folded name, the category and the base
+ * unit ({@link UnitNormalizer}), and their package quantities differ by at most
+ * {@link #MAX_QUANTITY_RATIO} times. Each product is described by its first listing.
+ */
+public final class EquivalenceClasses {
+
+    public static final double MAX_QUANTITY_RATIO = 2.0;
+    // Equivalents kept per product, closest package quantity first
+    public static final int MAX_EQUIVALENTS = 20;
+
+    private final Map<String, Member> membersById;
+
+    public EquivalenceClasses(ProductColumns columns) {
+        List<String> productIds = columns.productIds();
+        String[] foldedNames = new String[columns.productNames().size()];
+        String[] foldedCategories = new String[columns.categoryNames().size()];
+
+        // Class key -> members, in product id dictionary order
+        Map<String, List<Member>> classes = new HashMap<>();
+        boolean[] seen = new boolean[productIds.size()];
+        for (int row = 0; row < columns.size(); row++) {
+            int id = columns.productId(row);
+            if (id == StringDictionary.NULL_ID || seen[id]) {
+                continue;
+            }
+            seen[id] = true;
+
+            int name = columns.productName(row);
+            int category = columns.category(row);
+            int unit = columns.unit(row);
+            if (name == StringDictionary.NULL_ID || category == StringDictionary.NULL_ID
+                    || unit == StringDictionary.NULL_ID) {
+                continue;
+            }
+            String unitName = columns.unitNames().get(unit);
+            double quantity = UnitNormalizer.toBaseQuantity(boxed(columns.packageQuantity(row)), unitName);
+            if (Double.isNaN(quantity) || quantity <= 0) {
+                continue;
+            }
+
+            if (foldedNames[name] == null) {
+                foldedNames[name] = ProductSearchIndex.normalize(columns.productNames().get(name));
+            }
+            if (foldedCategories[category] == null) {
+                foldedCategories[category] = ProductSearchIndex.normalize(columns.categoryNames().get(category));
+            }
+            String key = foldedCategories[category] + '\0' + UnitNormalizer.baseUnit(unitName) + '\0' + foldedNames[name];
+            classes.computeIfAbsent(key, k -> new ArrayList<>()).add(new Member(productIds.get(id), quantity));
+        }
+
+        Map<String, Member> members = new HashMap<>();
+        classes.values().forEach(group -> {
+            Member[] byQuantity = group.toArray(new Member[0]);
+            // Stable, so equal quantities stay in product id dictionary order
+            Arrays.sort(byQuantity, (a, b) -> Double.compare(a.baseQuantity, b.baseQuantity));
+            for (int i = 0; i < byQuantity.length; i++) {
+                byQuantity[i].equivalents = closest(byQuantity, i);
+                members.put(byQuantity[i].productId, byQuantity[i]);
+            }
+        });
+        this.membersById = members;
+    }
+
+    /**
+     * Gets the products that can replace a product
+     * @param productId Product ID
+     * @return Equivalent product IDs (without the product itself), closest package quantity first
+     */
+    public List<String> getEquivalents(String productId) {
+        Member member = membersById.get(productId);
+        return member != null ? member.equivalents : Collections.emptyList();
+    }
+
+    /**
+     * Gets the package quantity of a product in its base unit
+     * @param productId Product ID
+     * @return Quantity, or NaN if the product has no usable quantity and unit
+     */
+    public double getBaseQuantity(String productId) {
+        Member member = membersById.get(productId);
+        return member != null ? member.baseQuantity : Double.NaN;
+    }
+
+    // Walks outwards from one member of a quantity-sorted class, nearer quantity ratio first
+    private static List<String> closest(Member[] byQuantity, int index) {
+        double quantity = byQuantity[index].baseQuantity;
+        List<String> equivalents = new ArrayList<>();
+        int below = index - 1;
+        int above = index + 1;
+        while (equivalents.size() < MAX_EQUIVALENTS) {
+            double belowRatio = below >= 0 ? quantity / byQuantity[below].baseQuantity : Double.POSITIVE_INFINITY;
+            double aboveRatio = above < byQuantity.length ? byQuantity[above].baseQuantity / quantity : Double.POSITIVE_INFINITY;
+            if (Math.min(belowRatio, aboveRatio) > MAX_QUANTITY_RATIO) {
+                break;
+            }
+            if (belowRatio <= aboveRatio) {
+                equivalents.add(byQuantity[below--].productId);
+            } else {
+                equivalents.add(byQuantity[above++].productId);
+            }
+        }
+        return Collections.unmodifiableList(equivalents);
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static final class Member {
+        private final String productId;
+        private final double baseQuantity;
+        private List<String> equivalents;
+
+        Member(String productId, double baseQuantity) {
+            this.productId = productId;
+            this.baseQuantity = baseQuantity;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.accesa.pricecomparator.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Rows ranked by ascending key, precomputed once per snapshot: over all rows, per category
+ * and per store (both matched ignoring case). Each ranking keeps the first {@link #DEPTH}
+ * rows, so a request for up to that many is an O(k) slice. Deeper requests, or requests
+ * filtering by category and store at once, get null and fall back to a {@link TopKRows} scan.
+ */
+public final class Leaderboards {
+
+    public static final int DEPTH = 100;
+
+    private final Ranking global;
+    private final Map<String, Ranking> byCategory;
+    private final Map<String, Ranking> byStore;
+
+    /**
+     * @param size Number of rows
+     * @param key Ranking key of a row (lowest first), or NaN to leave the row out
+     * @param categoryOf Category id of a row, or {@link StringDictionary#NULL_ID}
+     * @param categoryNames Category names by id
+     * @param storeOf Store id of a row, or {@link StringDictionary#NULL_ID}
+     * @param storeNames Store names by id
+     */
+    public Leaderboards(int size, IntToDoubleFunction key,
+                        IntUnaryOperator categoryOf, List<String> categoryNames,
+                        IntUnaryOperator storeOf, List<String> storeNames) {
+        this(null, size, key, categoryOf, categoryNames, storeOf, storeNames);
+    }
+
+    /**
+     * Ranks a subset of the rows
+     * @param rows Row numbers to rank
+     * @param key Ranking key of a row (lowest first), or NaN to leave the row out
+     * @param categoryOf Category id of a row, or {@link StringDictionary#NULL_ID}
+     * @param categoryNames Category names by id
+     * @param storeOf Store id of a row, or {@link StringDictionary#NULL_ID}
+     * @param storeNames Store names by id
+     */
+    public Leaderboards(int[] rows, IntToDoubleFunction key,
+                        IntUnaryOperator categoryOf, List<String> categoryNames,
+                        IntUnaryOperator storeOf, List<String> storeNames) {
+        this(rows, rows.length, key, categoryOf, categoryNames, storeOf, storeNames);
+    }
+
+    // Ranks the given rows, or rows 0 to size - 1 when rows is null
+    private Leaderboards(int[] rows, int size, IntToDoubleFunction key,
+                         IntUnaryOperator categoryOf, List<String> categoryNames,
+                         IntUnaryOperator storeOf, List<String> storeNames) {
+        Map<String, Integer> categoryGroups = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int[] categoryGroupOfId = groupIds(categoryNames, categoryGroups);
+        Map<String, Integer> storeGroups = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int[] storeGroupOfId = groupIds(storeNames, storeGroups);
+
+        TopKRows globalRows = new TopKRows(DEPTH);
+        TopKRows[] categoryRows = newHeaps(categoryGroups.size());
+        TopKRows[] storeRows = newHeaps(storeGroups.size());
+        int globalCount = 0;
+        int[] categoryCounts = new int[categoryRows.length];
+        int[] storeCounts = new int[storeRows.length];
+
+        for (int i = 0; i < size; i++) {
+            int row = rows != null ? rows[i] : i;
+            double rowKey = key.applyAsDouble(row);
+            if (Double.isNaN(rowKey)) {
+                continue;
+            }
+
+            globalRows.offer(rowKey, row);
+            globalCount++;
+            int category = categoryOf.applyAsInt(row);
+            if (category != StringDictionary.NULL_ID) {
+                categoryRows[categoryGroupOfId[category]].offer(rowKey, row);
+                categoryCounts[categoryGroupOfId[category]]++;
+            }
+            int store = storeOf.applyAsInt(row);
+            if (store != StringDictionary.NULL_ID) {
+                storeRows[storeGroupOfId[store]].offer(rowKey, row);
+                storeCounts[storeGroupOfId[store]]++;
+            }
+        }
+
+        this.global = new Ranking(globalRows, globalCount);
+        this.byCategory = rankings(categoryGroups, categoryRows, categoryCounts);
+        this.byStore = rankings(storeGroups, storeRows, storeCounts);
+    }
+
+    /**
+     * Gets the best rows from the precomputed rankings
+     * @param category Category to rank within, or null
+     * @param store Store to rank within, or null
+     * @param limit Number of rows to return
+     * @return Rows by ascending key, then row number, or null if this request has to be
+     * answered by a scan (limit beyond the kept depth, or both filters given)
+     */
+    public int[] top(String category, String store, int limit) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+
+        Ranking ranking;
+        if (category != null && store != null) {
+            return null;
+        } else if (category != null) {
+            ranking = byCategory.get(category);
+        } else if (store != null) {
+            ranking = byStore.get(store);
+        } else {
+            ranking = global;
+        }
+
+        // No ranking means no row has that category or store
+        return ranking != null ? ranking.slice(limit) : new int[0];
+    }
+
+    private static int[] groupIds(List<String> names, Map<String, Integer> groups) {
+        int[] groupOfId = new int[names.size()];
+        for (int id = 0; id < names.size(); id++) {
+            Integer group = groups.get(names.get(id));
+            if (group == null) {
+                group = groups.size();
+                groups.put(names.get(id), group);
+            }
+            groupOfId[id] = group;
+        }
+        return groupOfId;
+    }
+
+    private static TopKRows[] newHeaps(int count) {
+        TopKRows[] heaps = new TopKRows[count];
+        for (int i = 0; i < count; i++) {
+            heaps[i] = new TopKRows(DEPTH);
+        }
+        return heaps;
+    }
+
+    private static Map<String, Ranking> rankings(Map<String, Integer> groups, TopKRows[] heaps, int[] counts) {
+        Map<String, Ranking> rankings = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        groups.forEach((name, group) -> {
+            if (counts[group] > 0) {
+                rankings.put(name, new Ranking(heaps[group], counts[group]));
+            }
+        });
+        return Collections.unmodifiableMap(rankings);
+    }
+
+    private static final class Ranking {
+        private final int[] rows;
+        // True when every ranked row is kept, so any limit can be answered
+        private final boolean complete;
+
+        Ranking(TopKRows heap, int candidates) {
+            this.rows = heap.sortedRows();
+            this.complete = candidates <= rows.length;
+        }
+
+        int[] slice(int limit) {
+            if (limit <= rows.length) {
+                return Arrays.copyOf(rows, limit);
+            }
+            return complete ? rows.clone() : null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.PriceChange;
+import com.accesa.pricecomparator.model.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Listing price differences between two dataset versions. Partitions a reload did not
+ * touch are the very same lists in both snapshots and are skipped by identity, so the
+ * cost follows the rebuilt partitions rather than the catalog.
+ */
+public final class PriceChanges {
+
+    private PriceChanges() {
+    }
+
+    /**
+     * Gets the listings whose effective price changed or that were added. Listings that
+     * disappeared are not reported.
+     * @param previous Earlier snapshot
+     * @param current Later snapshot
+     * @return Changes in store, date and row order
+     */
+    public static List<PriceChange> between(DatasetSnapshot previous, DatasetSnapshot current) {
+        List<PriceChange> changes = new ArrayList<>();
+        current.getProductsByStoreAndDate().forEach((store, byDate) -> {
+            Map<LocalDate, List<Product>> previousByDate =
+                    previous.getProductsByStoreAndDate().getOrDefault(store, Collections.emptyMap());
+            byDate.forEach((date, products) -> {
+                List<Product> previousProducts = previousByDate.get(date);
+                if (previousProducts == products) {
+                    return;
+                }
+
+                Map<String, Product> before = new HashMap<>();
+                if (previousProducts != null) {
+                    previousProducts.forEach(product -> before.putIfAbsent(product.getProductId(), product));
+                }
+                for (Product product : products) {
+                    Product old = before.get(product.getProductId());
+                    Double price = priceOf(product);
+                    Double previousPrice = old != null ? priceOf(old) : null;
+                    if (old == null || !Objects.equals(price, previousPrice)) {
+                        changes.add(new PriceChange(product.getProductId(), product.getProductName(),
+                                product.getStore(), product.getDate(), previousPrice, price));
+                    }
+                }
+            });
+        });
+        return changes;
+    }
+
+    private static Double priceOf(Product product) {
+        return product.getDiscountedPrice() != null ? product.getDiscountedPrice() : product.getPrice();
+    }
+}
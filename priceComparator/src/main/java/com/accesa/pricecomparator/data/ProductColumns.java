@@ -0,0 +1,217 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Product;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Column-oriented copy of a snapshot's products: one primitive array per field, dates as
+ * epoch days and repeated strings as dictionary ids. Row i is the i-th product of
+ * {@link DatasetSnapshot#getProducts()}. Scans run over the arrays and only the rows they
+ * return are turned back into {@link Product} objects with {@link #materialize(int)}.
+ *
+ * The columns are an index kept in addition to the Product list, not a replacement for
+ * it: the other endpoints still hand out the snapshot's Product objects. Measured after a
+ * full GC on 10M parsed rows (compressed oops), the Product list took ~264 bytes per row
+ * and the columns, dictionaries included, another ~73, so they add about 28% to the heap
+ * of the products in exchange for scans that touch no objects.
+ */
+public final class ProductColumns {
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final int size;
+
+    // Missing numbers are NaN, a missing discount is 0
+    private final double[] price;
+    private final double[] packageQuantity;
+    private final double[] discountedPrice;
+    // Normalized at ingestion, per kg, l or piece (see baseUnit)
+    private final double[] pricePerUnit;
+    private final int[] discountPercentage;
+    private final int[] date;
+
+    private final int[] productId;
+    private final int[] productName;
+    private final int[] store;
+    private final int[] category;
+    private final int[] brand;
+    private final int[] unit;
+    private final int[] baseUnit;
+    private final int[] currency;
+
+    private final StringDictionary ids = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary stores = new StringDictionary();
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary brands = new StringDictionary();
+    private final StringDictionary units = new StringDictionary();
+    private final StringDictionary currencies = new StringDictionary();
+
+    public ProductColumns(List<Product> products) {
+        size = products.size();
+        price = new double[size];
+        packageQuantity = new double[size];
+        discountedPrice = new double[size];
+        pricePerUnit = new double[size];
+        discountPercentage = new int[size];
+        date = new int[size];
+        productId = new int[size];
+        productName = new int[size];
+        store = new int[size];
+        category = new int[size];
+        brand = new int[size];
+        unit = new int[size];
+        baseUnit = new int[size];
+        currency = new int[size];
+
+        for (int row = 0; row < size; row++) {
+            Product product = products.get(row);
+            price[row] = orNaN(product.getPrice());
+            packageQuantity[row] = orNaN(product.getPackageQuantity());
+            discountedPrice[row] = orNaN(product.getDiscountedPrice());
+            pricePerUnit[row] = orNaN(product.getPricePerUnit());
+            discountPercentage[row] = product.getDiscountPercentage() != null ? product.getDiscountPercentage() : 0;
+            date[row] = product.getDate() != null ? (int) product.getDate().toEpochDay() : NO_DATE;
+            productId[row] = ids.add(product.getProductId());
+            productName[row] = names.add(product.getProductName());
+            store[row] = stores.add(product.getStore());
+            category[row] = categories.add(product.getProductCategory());
+            brand[row] = brands.add(product.getBrand());
+            unit[row] = units.add(product.getPackageUnit());
+            baseUnit[row] = units.add(product.getBaseUnit());
+            currency[row] = currencies.add(product.getCurrency());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int discountPercentage(int row) {
+        return discountPercentage[row];
+    }
+
+    /**
+     * Price per base unit (kg, l, piece...) set at ingestion, or NaN when the package size is unknown
+     */
+    public double pricePerUnit(int row) {
+        return pricePerUnit[row];
+    }
+
+    /**
+     * Price file date as an epoch day, or NO_DATE
+     */
+    public int date(int row) {
+        return date[row];
+    }
+
+    public double packageQuantity(int row) {
+        return packageQuantity[row];
+    }
+
+    public int unit(int row) {
+        return unit[row];
+    }
+
+    /**
+     * Unit pricePerUnit is expressed in, as an id into {@link #unitNames()}, or {@link StringDictionary#NULL_ID}
+     */
+    public int baseUnit(int row) {
+        return baseUnit[row];
+    }
+
+    /**
+     * Gets the id of a unit name, as listed in {@link #unitNames()}
+     * @return Unit id, or {@link StringDictionary#NULL_ID} if no row has that unit
+     */
+    public int unitId(String name) {
+        return units.idOf(name);
+    }
+
+    public int productId(int row) {
+        return productId[row];
+    }
+
+    public int productName(int row) {
+        return productName[row];
+    }
+
+    public int brand(int row) {
+        return brand[row];
+    }
+
+    public int category(int row) {
+        return category[row];
+    }
+
+    /**
+     * Flags the category ids equal to the given name ignoring case, indexed by id
+     */
+    public boolean[] matchCategory(String name) {
+        return categories.matchIgnoreCase(name);
+    }
+
+    public int store(int row) {
+        return store[row];
+    }
+
+    /**
+     * Flags the store ids equal to the given name ignoring case, indexed by id
+     */
+    public boolean[] matchStore(String name) {
+        return stores.matchIgnoreCase(name);
+    }
+
+    public List<String> productIds() {
+        return ids.values();
+    }
+
+    public List<String> productNames() {
+        return names.values();
+    }
+
+    public List<String> brandNames() {
+        return brands.values();
+    }
+
+    public List<String> categoryNames() {
+        return categories.values();
+    }
+
+    public List<String> storeNames() {
+        return stores.values();
+    }
+
+    public List<String> unitNames() {
+        return units.values();
+    }
+
+    public Product materialize(int row) {
+        Product product = new Product();
+        product.setProductId(ids.get(productId[row]));
+        product.setProductName(names.get(productName[row]));
+        product.setProductCategory(categories.get(category[row]));
+        product.setBrand(brands.get(brand[row]));
+        product.setPackageQuantity(boxed(packageQuantity[row]));
+        product.setPackageUnit(units.get(unit[row]));
+        product.setPrice(boxed(price[row]));
+        product.setCurrency(currencies.get(currency[row]));
+        product.setStore(stores.get(store[row]));
+        product.setDate(date[row] != NO_DATE ? LocalDate.ofEpochDay(date[row]) : null);
+        product.setDiscountedPrice(boxed(discountedPrice[row]));
+        product.setDiscountPercentage(discountPercentage[row] != 0 ? discountPercentage[row] : null);
+        product.setPricePerUnit(boxed(pricePerUnit[row]));
+        product.setBaseUnit(units.get(baseUnit[row]));
+        return product;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
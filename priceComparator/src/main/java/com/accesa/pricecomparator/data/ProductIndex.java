@@ -0,0 +1,123 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.Product;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of productId -> store -> date-sorted price series, built once per snapshot so
+ * per-product lookups (baskets, price history, alerts) do not scan the whole catalog.
+ * Stores are matched ignoring case and iterated in name order.
+ */
+public final class ProductIndex {
+
+    private final Map<String, Map<String, PriceSeries>> seriesByProduct;
+
+    public ProductIndex(List<Product> products) {
+        Map<String, Map<String, TreeMap<LocalDate, Product>>> building = new HashMap<>();
+        for (Product product : products) {
+            if (product.getProductId() == null || product.getStore() == null || product.getDate() == null) {
+                continue;
+            }
+            building
+                    .computeIfAbsent(product.getProductId(), k -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                    .computeIfAbsent(product.getStore(), k -> new TreeMap<>())
+                    .put(product.getDate(), product);
+        }
+
+        Map<String, Map<String, PriceSeries>> index = new HashMap<>(building.size() * 2);
+        building.forEach((productId, byStore) -> {
+            Map<String, PriceSeries> series = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            byStore.forEach((store, byDate) -> series.put(store, new PriceSeries(byDate)));
+            index.put(productId, Collections.unmodifiableMap(series));
+        });
+        this.seriesByProduct = index;
+    }
+
+    /**
+     * Gets the price series of a product in every store that sells it
+     * @param productId Product ID
+     * @return Map of store to series, in store name order (empty if unknown)
+     */
+    public Map<String, PriceSeries> getSeriesByStore(String productId) {
+        return seriesByProduct.getOrDefault(productId, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the price series of a product in one store
+     * @param productId Product ID
+     * @param store Store name, matched ignoring case
+     * @return Series, or null if the store never listed the product
+     */
+    public PriceSeries getSeries(String productId, String store) {
+        return getSeriesByStore(productId).get(store);
+    }
+
+    /**
+     * Gets any listing of a product, preferring the first store by name and its oldest date
+     * @param productId Product ID
+     * @return Product or null if unknown
+     */
+    public Product findAny(String productId) {
+        Map<String, PriceSeries> byStore = getSeriesByStore(productId);
+        return byStore.isEmpty() ? null : byStore.values().iterator().next().first();
+    }
+
+    /**
+     * One product's listings in one store, sorted by date.
+     */
+    public static final class PriceSeries {
+        private final LocalDate[] dates;
+        private final Product[] products;
+
+        private PriceSeries(TreeMap<LocalDate, Product> byDate) {
+            this.dates = byDate.keySet().toArray(new LocalDate[0]);
+            this.products = byDate.values().toArray(new Product[0]);
+        }
+
+        public Product first() {
+            return products[0];
+        }
+
+        public Product latest() {
+            return products[products.length - 1];
+        }
+
+        /**
+         * Gets the listing from the given date's file
+         * @param date Date to look up
+         * @return Product or null if there is no listing on that date
+         */
+        public Product onDate(LocalDate date) {
+            int index = Arrays.binarySearch(dates, date);
+            return index >= 0 ? products[index] : null;
+        }
+
+        /**
+         * Gets the listing in effect on a day: the one from the latest file dated on or before it
+         * @param date Day to look up
+         * @return Product or null if the day is before the first listing
+         */
+        public Product asOf(LocalDate date) {
+            int index = Arrays.binarySearch(dates, date);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 ? products[index] : null;
+        }
+
+        public List<Product> all() {
+            return Collections.unmodifiableList(Arrays.asList(products));
+        }
+
+        public int size() {
+            return products.length;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.accesa.pricecomparator.data;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Text index over product name, brand and category, built once per snapshot. Text is
+ * folded before indexing and querying (lower case, diacritics removed: "Brânză" and
+ * "branza" are the same word). Documents are distinct product IDs; each query word
+ * matches indexed words exactly, by prefix, or within a small edit distance (candidates
+ * come from a trigram index over the distinct words).
+ */
+public final class ProductSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    // Product rows by folded product name, in snapshot order
+    private final Map<String, int[]> rowsByName;
+
+    // Documents are product ids (dictionary ids of the column store)
+    private final List<String> productIds;
+    // Distinct words in sorted order (for prefix ranges) and their postings (sorted document ids)
+    private final String[] words;
+    private final int[][] postings;
+    // Trigram -> ids of the words containing it
+    private final Map<String, int[]> wordsByTrigram;
+
+    public ProductSearchIndex(ProductColumns columns) {
+        // Fold each distinct string once, then work with dictionary ids
+        List<List<String>> nameWords = tokenizeAll(columns.productNames());
+        List<List<String>> brandWords = tokenizeAll(columns.brandNames());
+        List<List<String>> categoryWords = tokenizeAll(columns.categoryNames());
+
+        Map<String, IntBuffer> nameRows = new HashMap<>();
+        String[] foldedNames = new String[nameWords.size()];
+        for (int row = 0; row < columns.size(); row++) {
+            int name = columns.productName(row);
+            if (name != StringDictionary.NULL_ID && columns.productNames().get(name) != null) {
+                if (foldedNames[name] == null) {
+                    foldedNames[name] = String.join(" ", nameWords.get(name));
+                }
+                nameRows.computeIfAbsent(foldedNames[name], k -> new IntBuffer()).add(row);
+            }
+        }
+        Map<String, int[]> byName = new HashMap<>(nameRows.size() * 2);
+        nameRows.forEach((name, rows) -> byName.put(name, rows.toArray()));
+        this.rowsByName = byName;
+
+        // One document per product id, described by its first listing
+        this.productIds = columns.productIds();
+        Map<String, IntBuffer> wordDocs = new TreeMap<>();
+        boolean[] indexed = new boolean[productIds.size()];
+        for (int row = 0; row < columns.size(); row++) {
+            int doc = columns.productId(row);
+            if (doc == StringDictionary.NULL_ID || indexed[doc]) {
+                continue;
+            }
+            indexed[doc] = true;
+
+            Set<String> docWords = new LinkedHashSet<>();
+            addWords(docWords, nameWords, columns.productName(row));
+            addWords(docWords, brandWords, columns.brand(row));
+            addWords(docWords, categoryWords, columns.category(row));
+            // Documents are visited in increasing id order, so postings come out sorted
+            docWords.forEach(word -> wordDocs.computeIfAbsent(word, k -> new IntBuffer()).add(doc));
+        }
+
+        this.words = wordDocs.keySet().toArray(new String[0]);
+        this.postings = new int[words.length][];
+        Map<String, IntBuffer> trigramWords = new HashMap<>();
+        for (int id = 0; id < words.length; id++) {
+            postings[id] = wordDocs.get(words[id]).toArray();
+            for (String trigram : trigrams(words[id])) {
+                IntBuffer buffer = trigramWords.computeIfAbsent(trigram, k -> new IntBuffer());
+                // A word can repeat a trigram; keep each word once per trigram
+                if (buffer.size == 0 || buffer.values[buffer.size - 1] != id) {
+                    buffer.add(id);
+                }
+            }
+        }
+        Map<String, int[]> byTrigram = new HashMap<>(trigramWords.size() * 2);
+        trigramWords.forEach((trigram, ids) -> byTrigram.put(trigram, ids.toArray()));
+        this.wordsByTrigram = byTrigram;
+    }
+
+    /**
+     * Folds text for matching: lower case, diacritics removed, words separated by single spaces
+     * @param text Text to fold
+     * @return Folded text
+     */
+    public static String normalize(String text) {
+        return String.join(" ", tokenize(text));
+    }
+
+    /**
+     * Gets product rows whose name equals the given one after folding
+     * @param name Product name
+     * @return Rows of {@link DatasetSnapshot#getProducts()} in snapshot order
+     */
+    public int[] findRowsByName(String name) {
+        return rowsByName.getOrDefault(normalize(name), new int[0]);
+    }
+
+    /**
+     * Searches product name, brand and category. Every query word has to match a word of
+     * the product exactly or as a prefix; a query word matching neither way is matched
+     * approximately instead. Exact matches rank above prefix matches, then approximate ones.
+     * @param query Search text
+     * @param limit Maximum number of product IDs to return
+     * @return Matching product IDs, best match first
+     */
+    public List<String> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Start from the most selective query word so later ones only check its candidates
+        List<WordMatches> matches = new ArrayList<>(queryWords.size());
+        for (String queryWord : queryWords) {
+            WordMatches wordMatches = matchWords(queryWord);
+            if (wordMatches.wordIds.size == 0) {
+                return Collections.emptyList();
+            }
+            matches.add(wordMatches);
+        }
+        matches.sort(Comparator.comparingLong(wordMatches -> wordMatches.postingCount));
+
+        int[] wordScore = new int[productIds.size()];
+        int[] candidates = null;
+        int[] scores = null;
+        for (WordMatches wordMatches : matches) {
+            // Few matched words: merge their sorted postings with the sorted candidates
+            if (candidates != null && (long) candidates.length * wordMatches.wordIds.size <= 2 * wordMatches.postingCount) {
+                int[] best = new int[candidates.length];
+                for (int w = 0; w < wordMatches.wordIds.size; w++) {
+                    int[] docs = postings[wordMatches.wordIds.values[w]];
+                    int score = wordMatches.scores.values[w];
+                    for (int i = 0, d = 0; i < candidates.length && d < docs.length; ) {
+                        if (candidates[i] < docs[d]) {
+                            i++;
+                        } else if (candidates[i] > docs[d]) {
+                            d++;
+                        } else {
+                            best[i] = Math.max(best[i], score);
+                            i++;
+                            d++;
+                        }
+                    }
+                }
+
+                int kept = 0;
+                for (int i = 0; i < candidates.length; i++) {
+                    if (best[i] > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept++] = scores[i] + best[i];
+                    }
+                }
+                candidates = Arrays.copyOf(candidates, kept);
+                scores = Arrays.copyOf(scores, kept);
+                if (kept == 0) {
+                    return Collections.emptyList();
+                }
+                continue;
+            }
+
+            // Best score of each document for this query word
+            IntBuffer touched = new IntBuffer();
+            for (int i = 0; i < wordMatches.wordIds.size; i++) {
+                int score = wordMatches.scores.values[i];
+                for (int doc : postings[wordMatches.wordIds.values[i]]) {
+                    if (wordScore[doc] == 0) {
+                        touched.add(doc);
+                    }
+                    wordScore[doc] = Math.max(wordScore[doc], score);
+                }
+            }
+
+            if (candidates == null) {
+                candidates = touched.toArray();
+                // A single posting list is already sorted
+                if (wordMatches.wordIds.size > 1) {
+                    Arrays.sort(candidates);
+                }
+                scores = new int[candidates.length];
+                for (int i = 0; i < candidates.length; i++) {
+                    scores[i] = wordScore[candidates[i]];
+                }
+            } else {
+                int kept = 0;
+                for (int i = 0; i < candidates.length; i++) {
+                    if (wordScore[candidates[i]] > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept++] = scores[i] + wordScore[candidates[i]];
+                    }
+                }
+                candidates = Arrays.copyOf(candidates, kept);
+                scores = Arrays.copyOf(scores, kept);
+            }
+
+            for (int i = 0; i < touched.size; i++) {
+                wordScore[touched.values[i]] = 0;
+            }
+            if (candidates.length == 0) {
+                return Collections.emptyList();
+            }
+        }
+
+        // Highest score first, ties in product id order (candidates are sorted by id)
+        int maxScore = EXACT_SCORE * queryWords.size();
+        List<String> result = new ArrayList<>(Math.min(limit, candidates.length));
+        for (int score = maxScore; score > 0 && result.size() < limit; score--) {
+            for (int i = 0; i < candidates.length && result.size() < limit; i++) {
+                if (scores[i] == score) {
+                    result.add(productIds.get(candidates[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Indexed words matching one query word, with their scores
+    private WordMatches matchWords(String queryWord) {
+        WordMatches matches = new WordMatches();
+
+        // Words starting with the query word are a contiguous range of the sorted words
+        int from = Arrays.binarySearch(words, queryWord);
+        boolean exact = from >= 0;
+        if (!exact) {
+            from = -from - 1;
+        }
+        for (int id = from; id < words.length && words[id].startsWith(queryWord); id++) {
+            matches.add(id, id == from && exact ? EXACT_SCORE : PREFIX_SCORE, postings[id].length);
+        }
+
+        if (matches.wordIds.size == 0) {
+            for (int id : fuzzyMatches(queryWord)) {
+                matches.add(id, FUZZY_SCORE, postings[id].length);
+            }
+        }
+        return matches;
+    }
+
+    private List<Integer> fuzzyMatches(String queryWord) {
+        int maxEdits = queryWord.length() <= 3 ? 0 : queryWord.length() <= 6 ? 1 : 2;
+        if (maxEdits == 0) {
+            return Collections.emptyList();
+        }
+
+        // Each edit changes at most three trigrams, so close words share the rest
+        List<String> queryTrigrams = trigrams(queryWord);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : new LinkedHashSet<>(queryTrigrams)) {
+            for (int id : wordsByTrigram.getOrDefault(trigram, new int[0])) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+
+        List<Integer> matches = new ArrayList<>();
+        shared.forEach((id, count) -> {
+            if (count >= minShared && Math.abs(words[id].length() - queryWord.length()) <= maxEdits
+                    && editDistance(words[id], queryWord, maxEdits) <= maxEdits) {
+                matches.add(id);
+            }
+        });
+        return matches;
+    }
+
+    // Levenshtein distance, giving up (returning limit + 1) once it exceeds the limit
+    private static int editDistance(String a, String b, int limit) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static void addWords(Set<String> docWords, List<List<String>> wordsById, int id) {
+        if (id != StringDictionary.NULL_ID) {
+            docWords.addAll(wordsById.get(id));
+        }
+    }
+
+    private static List<List<String>> tokenizeAll(List<String> values) {
+        List<List<String>> tokens = new ArrayList<>(values.size());
+        values.forEach(value -> tokens.add(tokenize(value)));
+        return tokens;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        folded = COMBINING_MARKS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Trigrams of the word padded with boundary markers, so short words still have some
+    private static List<String> trigrams(String word) {
+        String padded = "^" + word + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static final class WordMatches {
+        private final IntBuffer wordIds = new IntBuffer();
+        private final IntBuffer scores = new IntBuffer();
+        private long postingCount;
+
+        void add(int wordId, int score, int postings) {
+            wordIds.add(wordId);
+            scores.add(score);
+            postingCount += postings;
+        }
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
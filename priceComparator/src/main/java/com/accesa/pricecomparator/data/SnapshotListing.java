@@ -0,0 +1,148 @@
+package com.accesa.pricecomparator.data;
+
+import com.accesa.pricecomparator.model.CursorPage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Filtered view over one of a snapshot's row lists ({@link DatasetSnapshot#getProducts()}
+ * or {@link DatasetSnapshot#getDiscounts()}), read in snapshot order without copying it.
+ * Row numbers are stable within a snapshot version, so a cursor is the dataset tag, the
+ * version and the last row returned. The tag names the ingested files across restarts and
+ * nodes, the version tells apart snapshots of one process; a cursor from another dataset
+ * or version no longer points at the same rows.
+ */
+public final class SnapshotListing<T> {
+
+    private static final char CURSOR_SEPARATOR = '-';
+
+    private final String tag;
+    private final long version;
+    private final List<T> rows;
+    // Sorted row numbers to read, or null to read every row
+    private final int[] candidates;
+    // Null when every row read is listed
+    private final IntPredicate filter;
+
+    private SnapshotListing(DatasetStamp stamp, List<T> rows, int[] candidates, IntPredicate filter) {
+        this.tag = stamp.getTag();
+        this.version = stamp.getVersion();
+        this.rows = rows;
+        this.candidates = candidates;
+        this.filter = filter;
+    }
+
+    /**
+     * Lists the rows matching a filter
+     * @param stamp Stamp of the snapshot the rows belong to
+     * @param rows Snapshot rows
+     * @param filter Row numbers to list (null for every row)
+     * @return Listing in snapshot order
+     */
+    public static <T> SnapshotListing<T> filtered(DatasetStamp stamp, List<T> rows, IntPredicate filter) {
+        return new SnapshotListing<>(stamp, rows, null, filter);
+    }
+
+    /**
+     * Lists rows already found by an index
+     * @param stamp Stamp of the snapshot the rows belong to
+     * @param rows Snapshot rows
+     * @param sortedRows Row numbers to list, in increasing order
+     * @return Listing in snapshot order
+     */
+    public static <T> SnapshotListing<T> ofRows(DatasetStamp stamp, List<T> rows, int[] sortedRows) {
+        return new SnapshotListing<>(stamp, rows, sortedRows, null);
+    }
+
+    /**
+     * Checks that a cursor has the form written by {@link #page(String, int)}
+     */
+    public static boolean isCursor(String cursor) {
+        return parse(cursor) != null;
+    }
+
+    /**
+     * Passes every listed row to an action, in order, one at a time
+     */
+    public void forEach(Consumer<? super T> action) {
+        int count = candidates != null ? candidates.length : rows.size();
+        for (int i = 0; i < count; i++) {
+            int row = candidates != null ? candidates[i] : i;
+            if (filter == null || filter.test(row)) {
+                action.accept(rows.get(row));
+            }
+        }
+    }
+
+    /**
+     * Gets every listed row
+     * @return Read-only list in snapshot order
+     */
+    public List<T> toList() {
+        if (candidates == null && filter == null) {
+            return rows;
+        }
+        List<T> listed = new ArrayList<>();
+        forEach(listed::add);
+        return listed;
+    }
+
+    /**
+     * Gets listed rows after a cursor
+     * @param cursor Cursor of the previous page (null for the first page)
+     * @param limit Page size
+     * @return Page, or null when the cursor belongs to another dataset or snapshot version
+     */
+    public CursorPage<T> page(String cursor, int limit) {
+        long[] position = parse(cursor);
+        if (cursor != null && (position == null || position[0] != version
+                || !cursor.startsWith(tag + CURSOR_SEPARATOR))) {
+            return null;
+        }
+        int afterRow = position != null ? (int) position[1] : -1;
+
+        int count = candidates != null ? candidates.length : rows.size();
+        int i = candidates != null ? firstCandidateAfter(afterRow) : afterRow + 1;
+        List<T> items = new ArrayList<>(Math.min(limit, count));
+        int lastRow = -1;
+        // One row past the page tells whether another page follows
+        for (; i < count; i++) {
+            int row = candidates != null ? candidates[i] : i;
+            if (filter != null && !filter.test(row)) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new CursorPage<>(items, tag + CURSOR_SEPARATOR + version + CURSOR_SEPARATOR + lastRow);
+            }
+            items.add(rows.get(row));
+            lastRow = row;
+        }
+        return new CursorPage<>(items, null);
+    }
+
+    private int firstCandidateAfter(int afterRow) {
+        int found = Arrays.binarySearch(candidates, afterRow);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    // Returns {version, row}, or null if the cursor is missing or malformed; the tag before
+    // them is compared as text
+    private static long[] parse(String cursor) {
+        int tagEnd = cursor != null ? cursor.indexOf(CURSOR_SEPARATOR) : -1;
+        int versionEnd = tagEnd > 0 ? cursor.indexOf(CURSOR_SEPARATOR, tagEnd + 1) : -1;
+        if (versionEnd < tagEnd + 2) {
+            return null;
+        }
+        try {
+            long cursorVersion = Long.parseLong(cursor.substring(tagEnd + 1, versionEnd));
+            int row = Integer.parseInt(cursor.substring(versionEnd + 1));
+            return row >= 0 ? new long[]{cursorVersion, row} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
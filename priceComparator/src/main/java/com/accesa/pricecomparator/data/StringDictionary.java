@@ -0,0 +1,63 @@
+package com.accesa.pricecomparator.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for repeated strings: each distinct value gets a dense int id
+ * in the order it is first added. Null is encoded as {@link #NULL_ID}.
+ */
+public final class StringDictionary {
+
+    public static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int add(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    public int idOf(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        return ids.getOrDefault(value, NULL_ID);
+    }
+
+    public String get(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    /**
+     * Marks every id whose value equals the given one ignoring case
+     * @param value Value to look for
+     * @return Flags indexed by id
+     */
+    public boolean[] matchIgnoreCase(String value) {
+        boolean[] matches = new boolean[values.size()];
+        for (int id = 0; id < values.size(); id++) {
+            matches[id] = values.get(id).equalsIgnoreCase(value);
+        }
+        return matches;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public List<String> values() {
+        return values;
+    }
+}
@@ -0,0 +1,289 @@
+package com.accesa.pricecomparator.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Weight-bounded cache with W-TinyLFU eviction. New entries land in a small LRU window;
+ * an entry leaving the window only enters the main space (a segmented LRU: probation,
+ * then protected once read again) if it has been asked for more often than the entry it
+ * would push out. Access frequencies are kept approximately in a count-min sketch of
+ * 4-bit counters that are halved periodically, so old popularity fades.
+ *
+ * All methods are synchronized: callers compute values outside the cache and only hold
+ * the lock for the bookkeeping.
+ */
+public final class TinyLfuCache<K, V> {
+
+    // Share of the weight given to the admission window and, of the rest, to protected entries
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final long maxWeight;
+    private final long windowMax;
+    private final long protectedMax;
+
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protectedQueue = new Queue<>();
+    private final FrequencySketch sketch;
+
+    private long evictions;
+
+    public TinyLfuCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.windowMax = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+        this.protectedMax = (maxWeight - windowMax) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(maxWeight);
+    }
+
+    /**
+     * Gets a value and counts the access, found or not
+     * @return Cached value, or null
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+
+        if (node.queue == window || node.queue == protectedQueue) {
+            node.queue.moveToHead(node);
+        } else {
+            // Read again while on probation: promote, demoting the oldest protected entries if full
+            probation.remove(node);
+            protectedQueue.addHead(node);
+            while (protectedQueue.weight > protectedMax && protectedQueue.size() > 1) {
+                Node<K, V> demoted = protectedQueue.tail();
+                protectedQueue.remove(demoted);
+                probation.addHead(demoted);
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Stores a value, evicting what the policy chooses. A value heavier than the whole
+     * cache is not stored.
+     * @param weight Cost of the value against the maximum weight, at least 1
+     */
+    public synchronized void put(K key, V value, long weight) {
+        Node<K, V> existing = nodes.remove(key);
+        if (existing != null) {
+            existing.queue.remove(existing);
+        }
+        if (weight > maxWeight) {
+            evictions++;
+            return;
+        }
+
+        Node<K, V> node = new Node<>(key, value, Math.max(1, weight));
+        nodes.put(key, node);
+        window.addHead(node);
+        while (window.weight > windowMax && window.size() > 0) {
+            Node<K, V> candidate = window.tail();
+            window.remove(candidate);
+            admit(candidate);
+        }
+    }
+
+    // Moves an entry out of the window into the main space if it beats the entries it displaces
+    private void admit(Node<K, V> candidate) {
+        long mainMax = maxWeight - windowMax;
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probation.weight + protectedQueue.weight + candidate.weight > mainMax) {
+            Node<K, V> victim = probation.size() > 0 ? probation.tail() : protectedQueue.tail();
+            if (victim == null || sketch.frequency(victim.key) >= candidateFrequency) {
+                evict(candidate);
+                return;
+            }
+            victim.queue.remove(victim);
+            evict(victim);
+        }
+        probation.addHead(candidate);
+    }
+
+    private void evict(Node<K, V> node) {
+        nodes.remove(node.key);
+        evictions++;
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public synchronized long weight() {
+        return window.weight + probation.weight + protectedQueue.weight;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Entries pushed out or refused by the policy since the cache was created
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        Queue<K, V> queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // Doubly linked LRU list, most recent at the head
+    private static final class Queue<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private int size;
+        long weight;
+
+        void addHead(Node<K, V> node) {
+            node.queue = this;
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            } else {
+                tail = node;
+            }
+            head = node;
+            size++;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+            weight -= node.weight;
+        }
+
+        void moveToHead(Node<K, V> node) {
+            if (head != node) {
+                remove(node);
+                addHead(node);
+            }
+        }
+
+        Node<K, V> tail() {
+            return tail;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+            weight = 0;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, sixteen to a long. Each key has one counter in
+     * each of four longs picked by different hashes, and its frequency is the smallest of
+     * them. Once there have been ten increments per long, every counter is halved.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long expectedEntries) {
+            int length = Integer.highestOneBit((int) Math.max(8, Math.min(expectedEntries, 1 << 20)) - 1) << 1;
+            table = new long[length];
+            sampleSize = 10 * length;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int group = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(slot(hash, i), group + i);
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int group = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int count = (int) ((table[slot(hash, i)] >>> ((group + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        // Saturates at 15; returns whether the counter moved
+        private boolean incrementAt(int slot, int counter) {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[slot] & mask) != mask) {
+                table[slot] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+
+        private int slot(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & (table.length - 1);
+        }
+
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
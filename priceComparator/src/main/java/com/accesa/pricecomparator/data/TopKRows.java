@@ -0,0 +1,97 @@
+package com.accesa.pricecomparator.data;
+
+/**
+ * Keeps the k rows with the smallest keys seen so far, using a bounded max-heap over
+ * primitive arrays. Ties are broken by row number, so the result matches a stable sort
+ * of the rows in their original order. Offer negated keys to keep the largest instead.
+ */
+public final class TopKRows {
+
+    private final int capacity;
+    private final double[] keys;
+    private final int[] rows;
+    private int size;
+
+    public TopKRows(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.keys = new double[this.capacity];
+        this.rows = new int[this.capacity];
+    }
+
+    public void offer(double key, int row) {
+        if (size < capacity) {
+            keys[size] = key;
+            rows[size] = row;
+            siftUp(size++);
+        } else if (capacity > 0 && before(key, row, keys[0], rows[0])) {
+            // The root is the worst row kept so far
+            keys[0] = key;
+            rows[0] = row;
+            siftDown(0, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drains the heap
+     * @return Kept rows ordered by ascending key, then row number
+     */
+    public int[] sortedRows() {
+        // Heap sort in place: repeatedly move the worst remaining row to the end
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        int[] sorted = new int[size];
+        System.arraycopy(rows, 0, sorted, 0, size);
+        size = 0;
+        return sorted;
+    }
+
+    private static boolean before(double key, int row, double otherKey, int otherRow) {
+        int order = Double.compare(key, otherKey);
+        return order < 0 || (order == 0 && row < otherRow);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(keys[parent], rows[parent], keys[index], rows[index])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && before(keys[largest], rows[largest], keys[left], rows[left])) {
+                largest = left;
+            }
+            if (right < heapSize && before(keys[largest], rows[largest], keys[right], rows[right])) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+    }
+}
@@ -0,0 +1,64 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one row of a bulk alert import
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertImportResult {
+
+    public enum Status {
+        // Stored and waiting for its target price
+        CREATED,
+        // Stored, and the current prices already reach its target
+        TRIGGERED,
+        // Not stored, see error
+        REJECTED
+    }
+
+    private int line;
+    private Status status;
+    private Long alertId;
+    private String error;
+
+    public static AlertImportResult rejected(int line, String error) {
+        return new AlertImportResult(line, Status.REJECTED, null, error);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getAlertId() {
+        return alertId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public void setAlertId(Long alertId) {
+        this.alertId = alertId;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
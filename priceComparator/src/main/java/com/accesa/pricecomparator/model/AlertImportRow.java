@@ -0,0 +1,78 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One alert of a bulk import, as read from the request body
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertImportRow {
+    // Line of the request body the row was read from
+    private int line;
+    private String productId;
+    private String store;
+    private Double targetPrice;
+    private String userId;
+
+    // Why the line could not be read, if it could not
+    private String error;
+
+    public static AlertImportRow malformed(int line, String error) {
+        AlertImportRow row = new AlertImportRow();
+        row.setLine(line);
+        row.setError(error);
+        return row;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public Double getTargetPrice() {
+        return targetPrice;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setTargetPrice(Double targetPrice) {
+        this.targetPrice = targetPrice;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,11 @@
+package com.accesa.pricecomparator.model;
+
+/**
+ * Lifecycle of a price alert. An alert starts ACTIVE and leaves it once: TRIGGERED when
+ * a price reaches its target, or DELETED. A triggered alert can still be deleted.
+ */
+public enum AlertStatus {
+    ACTIVE,
+    TRIGGERED,
+    DELETED
+}
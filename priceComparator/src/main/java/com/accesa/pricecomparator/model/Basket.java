@@ -0,0 +1,35 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Shopping basket with quantities
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Basket {
+    private List<BasketItem> items;
+    // Lets a store supply an equivalent product when it does not sell the requested one, or sells it for more
+    private boolean allowEquivalents;
+
+    public List<BasketItem> getItems() {
+        return items;
+    }
+
+    public boolean isAllowEquivalents() {
+        return allowEquivalents;
+    }
+
+    public void setItems(List<BasketItem> items) {
+        this.items = items;
+    }
+
+    public void setAllowEquivalents(boolean allowEquivalents) {
+        this.allowEquivalents = allowEquivalents;
+    }
+}
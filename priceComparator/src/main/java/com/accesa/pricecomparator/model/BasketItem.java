@@ -0,0 +1,33 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a shopping basket
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketItem {
+    private String productId;
+    // Number of packages of the requested product
+    private int quantity = 1;
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
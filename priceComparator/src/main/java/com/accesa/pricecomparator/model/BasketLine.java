@@ -0,0 +1,60 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a store sells for one basket item
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketLine {
+    private String requestedProductId;
+    private Product product;
+    // Packages of the sold product needed to cover the requested quantity
+    private int packages;
+    private Double lineTotal;
+    private boolean substituted;
+
+    public String getRequestedProductId() {
+        return requestedProductId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public int getPackages() {
+        return packages;
+    }
+
+    public Double getLineTotal() {
+        return lineTotal;
+    }
+
+    public boolean isSubstituted() {
+        return substituted;
+    }
+
+    public void setRequestedProductId(String requestedProductId) {
+        this.requestedProductId = requestedProductId;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public void setPackages(int packages) {
+        this.packages = packages;
+    }
+
+    public void setLineTotal(Double lineTotal) {
+        this.lineTotal = lineTotal;
+    }
+
+    public void setSubstituted(boolean substituted) {
+        this.substituted = substituted;
+    }
+}
@@ -0,0 +1,46 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One basket of a batch optimization request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketRequest {
+    // Caller's own reference, echoed back in the result
+    private String id;
+    private List<String> productIds;
+    // Date for pricing, if null the batch date (or the latest data) is used
+    private LocalDate date;
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getProductIds() {
+        return productIds;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setProductIds(List<String> productIds) {
+        this.productIds = productIds;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+}
@@ -0,0 +1,73 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Store totals of one basket of a batch optimization request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketResult {
+    // Position of the basket in the request; results arrive in completion order
+    private int index;
+    private String id;
+    private LocalDate date;
+    // Total basket price per store selling every item
+    private Map<String, Double> storeTotals;
+    private String cheapestStore;
+    private Double cheapestTotal;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Map<String, Double> getStoreTotals() {
+        return storeTotals;
+    }
+
+    public String getCheapestStore() {
+        return cheapestStore;
+    }
+
+    public Double getCheapestTotal() {
+        return cheapestTotal;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public void setStoreTotals(Map<String, Double> storeTotals) {
+        this.storeTotals = storeTotals;
+    }
+
+    public void setCheapestStore(String cheapestStore) {
+        this.cheapestStore = cheapestStore;
+    }
+
+    public void setCheapestTotal(Double cheapestTotal) {
+        this.cheapestTotal = cheapestTotal;
+    }
+}
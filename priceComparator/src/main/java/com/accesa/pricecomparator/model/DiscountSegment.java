@@ -0,0 +1,52 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A run of days (both ends inclusive) on which a product had the same discount in one store
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountSegment {
+    private String store;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private Integer percentage;
+
+    public String getStore() {
+        return store;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public Integer getPercentage() {
+        return percentage;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public void setPercentage(Integer percentage) {
+        this.percentage = percentage;
+    }
+}
@@ -0,0 +1,118 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EffectivePrice {
+    private String productId;
+    private String productName;
+    private String store;
+
+    // Day asked for, and the date of the product file whose price was in effect on it
+    private LocalDate date;
+    private LocalDate listingDate;
+
+    private Double price;
+    private String currency;
+
+    // Discount running on that day, if any (from any discount file)
+    private Integer discountPercentage;
+    private LocalDate discountFrom;
+    private LocalDate discountTo;
+
+    private Double effectivePrice;
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalDate getListingDate() {
+        return listingDate;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Integer getDiscountPercentage() {
+        return discountPercentage;
+    }
+
+    public LocalDate getDiscountFrom() {
+        return discountFrom;
+    }
+
+    public LocalDate getDiscountTo() {
+        return discountTo;
+    }
+
+    public Double getEffectivePrice() {
+        return effectivePrice;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public void setListingDate(LocalDate listingDate) {
+        this.listingDate = listingDate;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public void setDiscountPercentage(Integer discountPercentage) {
+        this.discountPercentage = discountPercentage;
+    }
+
+    public void setDiscountFrom(LocalDate discountFrom) {
+        this.discountFrom = discountFrom;
+    }
+
+    public void setDiscountTo(LocalDate discountTo) {
+        this.discountTo = discountTo;
+    }
+
+    public void setEffectivePrice(Double effectivePrice) {
+        this.effectivePrice = effectivePrice;
+    }
+}
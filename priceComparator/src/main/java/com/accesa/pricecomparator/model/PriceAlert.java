@@ -1,25 +1,47 @@
 package com.accesa.pricecomparator.model;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PriceAlert {
+    private static final AtomicReferenceFieldUpdater<PriceAlert, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(PriceAlert.class, State.class, "state");
+
     private Long id;
     private String productId;
     private String productName;
     private String store;
     private Double targetPrice;
     private String userId;
-    private boolean isActive;
     private LocalDateTime createdAt;
-    private LocalDateTime triggeredAt;
 
+    // Status and trigger details, only ever replaced as a whole by compare-and-set, so
+    // readers never see a half-made transition and only one caller wins each transition
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile State state = State.ACTIVE;
+
+    public PriceAlert(Long id, String productId, String productName, String store, Double targetPrice,
+                      String userId, boolean isActive, LocalDateTime createdAt, LocalDateTime triggeredAt) {
+        this.id = id;
+        this.productId = productId;
+        this.productName = productName;
+        this.store = store;
+        this.targetPrice = targetPrice;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        if (!isActive) {
+            restoreTriggered(triggeredAt, null, null);
+        }
+    }
 
     public PriceAlert(String productId, String productName, String store, Double targetPrice, String userId) {
         this.productId = productId;
@@ -27,10 +49,44 @@ public class PriceAlert {
         this.store = store;
         this.targetPrice = targetPrice;
         this.userId = userId;
-        this.isActive = true;
         this.createdAt = LocalDateTime.now();
     }
 
+    /**
+     * Moves the alert from ACTIVE to TRIGGERED. Of any number of concurrent callers, exactly one succeeds.
+     * @param store Store of the listing that reached the target
+     * @param price Price that reached the target
+     * @param triggeredAt Time of the trigger
+     * @return true if this call triggered the alert, false if it was already triggered or deleted
+     */
+    public boolean trigger(String store, double price, LocalDateTime triggeredAt) {
+        return STATE.compareAndSet(this, State.ACTIVE, new State(AlertStatus.TRIGGERED, triggeredAt, store, price));
+    }
+
+    /**
+     * Moves the alert to DELETED, keeping the trigger details if it was triggered
+     * @return true if this call deleted the alert, false if it was already deleted
+     */
+    public boolean markDeleted() {
+        while (true) {
+            State current = state;
+            if (current.status == AlertStatus.DELETED) {
+                return false;
+            }
+            State deleted = new State(AlertStatus.DELETED, current.triggeredAt, current.triggeredStore, current.triggeredPrice);
+            if (STATE.compareAndSet(this, current, deleted)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets a triggered state read back from storage, bypassing the transition rules
+     */
+    public void restoreTriggered(LocalDateTime triggeredAt, String triggeredStore, Double triggeredPrice) {
+        state = new State(AlertStatus.TRIGGERED, triggeredAt, triggeredStore, triggeredPrice);
+    }
+
     public Long getId() {
         return id;
     }
@@ -56,7 +112,11 @@ public class PriceAlert {
     }
 
     public boolean isActive() {
-        return isActive;
+        return state.status == AlertStatus.ACTIVE;
+    }
+
+    public AlertStatus getStatus() {
+        return state.status;
     }
 
     public LocalDateTime getCreatedAt() {
@@ -64,7 +124,15 @@ public class PriceAlert {
     }
 
     public LocalDateTime getTriggeredAt() {
-        return triggeredAt;
+        return state.triggeredAt;
+    }
+
+    public String getTriggeredStore() {
+        return state.triggeredStore;
+    }
+
+    public Double getTriggeredPrice() {
+        return state.triggeredPrice;
     }
 
     public void setId(Long id) {
@@ -91,15 +159,29 @@ public class PriceAlert {
         this.userId = userId;
     }
 
-    public void setActive(boolean active) {
-        isActive = active;
-    }
-
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
 
-    public void setTriggeredAt(LocalDateTime triggeredAt) {
-        this.triggeredAt = triggeredAt;
+    private static final class State {
+        // Every active alert shares this instance, so triggering is a single compare-and-set
+        private static final State ACTIVE = new State(AlertStatus.ACTIVE, null, null, null);
+
+        private final AlertStatus status;
+        private final LocalDateTime triggeredAt;
+        private final String triggeredStore;
+        private final Double triggeredPrice;
+
+        State(AlertStatus status, LocalDateTime triggeredAt, String triggeredStore, Double triggeredPrice) {
+            this.status = status;
+            this.triggeredAt = triggeredAt;
+            this.triggeredStore = triggeredStore;
+            this.triggeredPrice = triggeredPrice;
+        }
+
+        @Override
+        public String toString() {
+            return status + (triggeredAt != null ? " at " + triggeredAt + " (" + triggeredStore + ", " + triggeredPrice + ")" : "");
+        }
     }
 }
\ No newline at end of file
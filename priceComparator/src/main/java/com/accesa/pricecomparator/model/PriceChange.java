@@ -0,0 +1,72 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A listing whose effective price (discounted if a discount applies) differs between two
+ * dataset versions, or that is new in the later one
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceChange {
+    private String productId;
+    private String productName;
+    private String store;
+    private LocalDate date;
+    // Null for a new listing
+    private Double previousPrice;
+    private Double price;
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Double getPreviousPrice() {
+        return previousPrice;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public void setPreviousPrice(Double previousPrice) {
+        this.previousPrice = previousPrice;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+}
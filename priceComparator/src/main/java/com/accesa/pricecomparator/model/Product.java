@@ -1,5 +1,6 @@
 package com.accesa.pricecomparator.model;
 
+import com.accesa.pricecomparator.util.UnitNormalizer;
 import com.opencsv.bean.CsvBindByName;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -43,12 +44,15 @@ public class Product {
     private Double discountedPrice;
     private Integer discountPercentage;
 
-    // Helper method to calculate price per unit (e.g., price per kg)
-    public Double getPricePerUnit() {
-        if (packageQuantity == null || packageQuantity == 0) {
-            return null;
-        }
-        return price / packageQuantity;
+    // Set at ingestion: price per base unit (e.g. per kg for a 500 g package), see UnitNormalizer
+    private Double pricePerUnit;
+    private String baseUnit;
+
+    // Helper method to set the price per unit from price and package size
+    public void normalizeUnitPrice() {
+        double quantity = UnitNormalizer.toBaseQuantity(packageQuantity, packageUnit);
+        baseUnit = UnitNormalizer.baseUnit(packageUnit);
+        pricePerUnit = price != null && quantity > 0 ? price / quantity : null;
     }
 
     // Helper method to calculate discounted price
@@ -107,6 +111,14 @@ public class Product {
         return discountPercentage;
     }
 
+    public Double getPricePerUnit() {
+        return pricePerUnit;
+    }
+
+    public String getBaseUnit() {
+        return baseUnit;
+    }
+
     public void setProductId(String productId) {
         this.productId = productId;
     }
@@ -154,4 +166,12 @@ public class Product {
     public void setDiscountPercentage(Integer discountPercentage) {
         this.discountPercentage = discountPercentage;
     }
+
+    public void setPricePerUnit(Double pricePerUnit) {
+        this.pricePerUnit = pricePerUnit;
+    }
+
+    public void setBaseUnit(String baseUnit) {
+        this.baseUnit = baseUnit;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of the query result cache since startup
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryCacheStats {
+    private boolean enabled;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+
+    // Times the cache was emptied because a new dataset version was published
+    private long invalidations;
+
+    private int entries;
+    private long weight;
+    private long maxWeight;
+    private long datasetVersion;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public void setHitRate(double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public void setInvalidations(long invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    public void setWeight(long weight) {
+        this.weight = weight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public void setDatasetVersion(long datasetVersion) {
+        this.datasetVersion = datasetVersion;
+    }
+}
@@ -0,0 +1,140 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReloadStatus {
+
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private State state;
+    private String trigger;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs;
+
+    // Progress of the current (or last) reload
+    private int changedFiles;
+    private int removedFiles;
+    private int filesToParse;
+    private int filesParsed;
+    private int rowsLoaded;
+
+    private long datasetVersion;
+    private String error;
+
+    // Files that could not be parsed; their partitions kept the rows of the previous version
+    private List<String> failedFiles = new ArrayList<>();
+
+    public State getState() {
+        return state;
+    }
+
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getRemovedFiles() {
+        return removedFiles;
+    }
+
+    public int getFilesToParse() {
+        return filesToParse;
+    }
+
+    public int getFilesParsed() {
+        return filesParsed;
+    }
+
+    public int getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<String> getFailedFiles() {
+        return failedFiles;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public void setTrigger(String trigger) {
+        this.trigger = trigger;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public void setChangedFiles(int changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
+    public void setRemovedFiles(int removedFiles) {
+        this.removedFiles = removedFiles;
+    }
+
+    public void setFilesToParse(int filesToParse) {
+        this.filesToParse = filesToParse;
+    }
+
+    public void setFilesParsed(int filesParsed) {
+        this.filesParsed = filesParsed;
+    }
+
+    public void setRowsLoaded(int rowsLoaded) {
+        this.rowsLoaded = rowsLoaded;
+    }
+
+    public void setDatasetVersion(long datasetVersion) {
+        this.datasetVersion = datasetVersion;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public void setFailedFiles(List<String> failedFiles) {
+        this.failedFiles = failedFiles;
+    }
+}
@@ -0,0 +1,65 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cheapest way to buy a basket across at most a given number of stores
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SplitBasketResult {
+    private List<StoreBasket> stores;
+    private Double itemsCost;
+
+    // Visit penalty times the number of stores used; totalCost = itemsCost + storePenalty
+    private Double storePenalty;
+    private Double totalCost;
+
+    // Basket items no allowed combination of stores sells
+    private List<String> unavailableProductIds;
+
+    public List<StoreBasket> getStores() {
+        return stores;
+    }
+
+    public Double getItemsCost() {
+        return itemsCost;
+    }
+
+    public Double getStorePenalty() {
+        return storePenalty;
+    }
+
+    public Double getTotalCost() {
+        return totalCost;
+    }
+
+    public List<String> getUnavailableProductIds() {
+        return unavailableProductIds;
+    }
+
+    public void setStores(List<StoreBasket> stores) {
+        this.stores = stores;
+    }
+
+    public void setItemsCost(Double itemsCost) {
+        this.itemsCost = itemsCost;
+    }
+
+    public void setStorePenalty(Double storePenalty) {
+        this.storePenalty = storePenalty;
+    }
+
+    public void setTotalCost(Double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public void setUnavailableProductIds(List<String> unavailableProductIds) {
+        this.unavailableProductIds = unavailableProductIds;
+    }
+}
@@ -0,0 +1,43 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The part of a split basket bought in one store
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreBasket {
+    private String store;
+    private List<Product> items;
+    private Double subtotal;
+
+    public String getStore() {
+        return store;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public Double getSubtotal() {
+        return subtotal;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setItems(List<Product> items) {
+        this.items = items;
+    }
+
+    public void setSubtotal(Double subtotal) {
+        this.subtotal = subtotal;
+    }
+}
@@ -0,0 +1,43 @@
+package com.accesa.pricecomparator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Price of a whole basket in one store
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreQuote {
+    private String store;
+    private List<BasketLine> lines;
+    private Double total;
+
+    public String getStore() {
+        return store;
+    }
+
+    public List<BasketLine> getLines() {
+        return lines;
+    }
+
+    public Double getTotal() {
+        return total;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public void setLines(List<BasketLine> lines) {
+        this.lines = lines;
+    }
+
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+}
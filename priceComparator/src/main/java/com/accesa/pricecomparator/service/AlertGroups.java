@@ -0,0 +1,145 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.model.AlertStatus;
+import com.accesa.pricecomparator.model.PriceAlert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Alerts grouped by a key (user or product), each group split into active and inactive
+ * alerts sorted by id. Listing a group reads only that group, from an id onwards, so a
+ * page costs its own size whatever the total number of alerts.
+ *
+ * Groups are changed inside compute calls on their key, so an emptied group is never
+ * dropped while an alert is being added to it.
+ */
+final class AlertGroups {
+
+    private final ConcurrentMap<String, Partition> groups = new ConcurrentHashMap<>();
+
+    void add(String key, PriceAlert alert) {
+        if (key != null) {
+            groups.compute(key, (k, group) -> {
+                Partition partition = group != null ? group : new Partition();
+                partition.add(alert);
+                return partition;
+            });
+        }
+    }
+
+    /**
+     * Moves an alert to the inactive part of its group once it has triggered
+     */
+    void deactivate(String key, PriceAlert alert) {
+        if (key != null) {
+            groups.computeIfPresent(key, (k, group) -> {
+                group.deactivate(alert);
+                return group;
+            });
+        }
+    }
+
+    void remove(String key, PriceAlert alert) {
+        if (key != null) {
+            groups.computeIfPresent(key, (k, group) -> {
+                group.remove(alert);
+                return group.isEmpty() ? null : group;
+            });
+        }
+    }
+
+    /**
+     * Gets the alerts of a group
+     * @return Group, or an empty one if no alert has the key
+     */
+    Partition get(String key) {
+        Partition group = key != null ? groups.get(key) : null;
+        return group != null ? group : Partition.EMPTY;
+    }
+
+    /**
+     * Active and inactive alerts sharing a key, each sorted by id
+     */
+    static final class Partition {
+        private static final Partition EMPTY = new Partition();
+
+        private final NavigableMap<Long, PriceAlert> active = new ConcurrentSkipListMap<>();
+        private final NavigableMap<Long, PriceAlert> inactive = new ConcurrentSkipListMap<>();
+
+        void add(PriceAlert alert) {
+            (alert.isActive() ? active : inactive).put(alert.getId(), alert);
+        }
+
+        void deactivate(PriceAlert alert) {
+            if (active.remove(alert.getId()) != null) {
+                inactive.put(alert.getId(), alert);
+                // Deletes mark the alert before removing it, so one of us sees the other
+                if (alert.getStatus() == AlertStatus.DELETED) {
+                    inactive.remove(alert.getId());
+                }
+            }
+        }
+
+        void remove(PriceAlert alert) {
+            active.remove(alert.getId());
+            inactive.remove(alert.getId());
+        }
+
+        boolean isEmpty() {
+            return active.isEmpty() && inactive.isEmpty();
+        }
+
+        /**
+         * Gets alerts in id order after a cursor
+         * @param afterId Last id of the previous page (null for the first page)
+         * @param limit Page size
+         * @param activeOnly Whether to skip triggered alerts
+         * @param productId Only alerts on this product (optional)
+         * @return Up to limit + 1 alerts; an extra alert means another page follows
+         */
+        List<PriceAlert> page(Long afterId, int limit, boolean activeOnly, String productId) {
+            List<PriceAlert> page = new ArrayList<>();
+            Iterator<PriceAlert> fromActive = after(active, afterId);
+            Iterator<PriceAlert> fromInactive = activeOnly ? null : after(inactive, afterId);
+            PriceAlert nextActive = next(fromActive);
+            PriceAlert nextInactive = next(fromInactive);
+            long lastId = Long.MIN_VALUE;
+
+            // Merge both parts in id order; an alert moved while we read may show up in both
+            while (page.size() <= limit && (nextActive != null || nextInactive != null)) {
+                PriceAlert alert;
+                if (nextInactive == null || (nextActive != null && nextActive.getId() <= nextInactive.getId())) {
+                    alert = nextActive;
+                    nextActive = next(fromActive);
+                } else {
+                    alert = nextInactive;
+                    nextInactive = next(fromInactive);
+                }
+                if (alert.getId() == lastId || alert.getStatus() == AlertStatus.DELETED
+                        || (activeOnly && !alert.isActive())
+                        || (productId != null && !productId.equals(alert.getProductId()))) {
+                    continue;
+                }
+                lastId = alert.getId();
+                page.add(alert);
+            }
+            return page;
+        }
+
+        private static Iterator<PriceAlert> after(NavigableMap<Long, PriceAlert> alerts, Long afterId) {
+            Map<Long, PriceAlert> tail = afterId != null ? alerts.tailMap(afterId, false) : alerts;
+            return tail.values().iterator();
+        }
+
+        private static PriceAlert next(Iterator<PriceAlert> alerts) {
+            return alerts != null && alerts.hasNext() ? alerts.next() : null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.model.PriceAlert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Active alerts by product and store (ignoring case, with alerts on any store in their
+ * own group), each group sorted by target price. A price finds the alerts it triggers
+ * with one range query per group: every alert whose target is at or above the price.
+ *
+ * Safe for concurrent use without a shared lock: groups are concurrent sorted sets, and a
+ * target is handed out by whichever caller removes it, so each alert is taken at most once.
+ * Groups are created and dropped inside compute calls on their key, so an alert is never
+ * added to a group that is being dropped.
+ */
+final class AlertIndex {
+
+    // Store key of alerts watching every store
+    private static final String ANY_STORE = "";
+
+    private final ConcurrentMap<String, ConcurrentMap<String, NavigableSet<Target>>> targetsByProduct =
+            new ConcurrentHashMap<>();
+
+    void add(PriceAlert alert) {
+        Target target = new Target(alert.getTargetPrice(), alert.getId());
+        targetsByProduct.compute(alert.getProductId(), (productId, byStore) -> {
+            ConcurrentMap<String, NavigableSet<Target>> stores = byStore != null ? byStore : new ConcurrentHashMap<>();
+            stores.compute(storeKey(alert.getStore()), (store, targets) -> {
+                NavigableSet<Target> group = targets != null ? targets : new ConcurrentSkipListSet<>();
+                group.add(target);
+                return group;
+            });
+            return stores;
+        });
+    }
+
+    void remove(PriceAlert alert) {
+        ConcurrentMap<String, NavigableSet<Target>> byStore = targetsByProduct.get(alert.getProductId());
+        if (byStore == null) {
+            return;
+        }
+        String store = storeKey(alert.getStore());
+        NavigableSet<Target> targets = byStore.get(store);
+        if (targets != null && targets.remove(new Target(alert.getTargetPrice(), alert.getId()))) {
+            dropIfEmpty(alert.getProductId(), store);
+        }
+    }
+
+    /**
+     * Removes and returns the alerts a listing price triggers
+     * @param productId Product ID of the listing
+     * @param store Store of the listing
+     * @param price Effective price of the listing
+     * @return IDs of alerts on this product, in this store or any store, with a target at or above the price
+     */
+    List<Long> takeTriggered(String productId, String store, double price) {
+        List<Long> triggered = new ArrayList<>();
+        ConcurrentMap<String, NavigableSet<Target>> byStore = targetsByProduct.get(productId);
+        if (byStore == null) {
+            return triggered;
+        }
+        takeAtOrAbove(productId, byStore, storeKey(store), price, triggered);
+        takeAtOrAbove(productId, byStore, ANY_STORE, price, triggered);
+        return triggered;
+    }
+
+    /**
+     * Gets the products that have at least one active alert
+     */
+    List<String> productIds() {
+        return new ArrayList<>(targetsByProduct.keySet());
+    }
+
+    boolean isEmpty() {
+        return targetsByProduct.isEmpty();
+    }
+
+    private void takeAtOrAbove(String productId, ConcurrentMap<String, NavigableSet<Target>> byStore, String store,
+                               double price, List<Long> triggered) {
+        NavigableSet<Target> targets = byStore.get(store);
+        if (targets == null) {
+            return;
+        }
+        boolean took = false;
+        Iterator<Target> atOrAbove = targets.tailSet(new Target(price, Long.MIN_VALUE), true).iterator();
+        while (atOrAbove.hasNext()) {
+            Target target = atOrAbove.next();
+            // Concurrent callers may both see the target; only the one that removes it takes it
+            if (targets.remove(target)) {
+                triggered.add(target.alertId);
+                took = true;
+            }
+        }
+        if (took) {
+            dropIfEmpty(productId, store);
+        }
+    }
+
+    // Drops an emptied group, and an emptied product, atomically with respect to add()
+    private void dropIfEmpty(String productId, String store) {
+        targetsByProduct.computeIfPresent(productId, (id, byStore) -> {
+            byStore.computeIfPresent(store, (key, targets) -> targets.isEmpty() ? null : targets);
+            return byStore.isEmpty() ? null : byStore;
+        });
+    }
+
+    private static String storeKey(String store) {
+        return store != null ? store.toLowerCase(Locale.ROOT) : ANY_STORE;
+    }
+
+    private static final class Target implements Comparable<Target> {
+        private final double price;
+        private final long alertId;
+
+        Target(double price, long alertId) {
+            this.price = price;
+            this.alertId = alertId;
+        }
+
+        @Override
+        public int compareTo(Target other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(alertId, other.alertId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Target && compareTo((Target) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(price) * 31 + Long.hashCode(alertId);
+        }
+    }
+}
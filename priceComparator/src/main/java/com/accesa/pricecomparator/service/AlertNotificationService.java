@@ -0,0 +1,165 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.model.PriceAlert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes triggered alerts to their user's Server-Sent Events subscribers. Publishing only
+ * appends to each subscriber's bounded buffer and never waits for the network: a full
+ * buffer drops its oldest alert, and the subscriber is told how many it missed. Sending
+ * happens on a small delivery pool, one drain at a time per subscriber.
+ */
+@Slf4j
+@Service
+public class AlertNotificationService {
+
+    // Alerts buffered per subscriber before the oldest are dropped
+    @Value("${app.alerts.stream.buffer-size:256}")
+    private int bufferSize;
+
+    // Connection lifetime in ms; clients reconnect when it ends
+    @Value("${app.alerts.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.alerts.stream.delivery-threads:2}")
+    private int deliveryThreads;
+
+    private final Map<String, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private ExecutorService deliveryPool;
+
+    @PostConstruct
+    public void startDeliveryPool() {
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        deliveryPool = Executors.newFixedThreadPool(Math.max(1, deliveryThreads), runnable -> {
+            Thread thread = new Thread(runnable, "alert-delivery-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryPool.shutdownNow();
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Opens an event stream of the alerts a user's alerts trigger from now on
+     * @param userId User ID
+     * @return Emitter sending "alert" events (the triggered alert) and "overflow" events
+     * (number of alerts dropped because the client fell behind)
+     */
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(Math.max(1, bufferSize)));
+        subscribersByUser.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        try {
+            // Lets the client know the stream is open before the first alert
+            emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException e) {
+            unsubscribe(subscriber);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Queues a triggered alert for every subscriber of its user, without blocking
+     * @param alert Triggered alert
+     */
+    public void publish(PriceAlert alert) {
+        // Alerts restored from older journals may have no user, and nobody can subscribe to those
+        if (alert.getUserId() == null) {
+            return;
+        }
+        Set<Subscriber> subscribers = subscribersByUser.get(alert.getUserId());
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            while (!subscriber.buffer.offer(alert)) {
+                if (subscriber.buffer.poll() != null) {
+                    subscriber.dropped.incrementAndGet();
+                }
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribersByUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            deliveryPool.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            int dropped = subscriber.dropped.getAndSet(0);
+            if (dropped > 0) {
+                subscriber.emitter.send(SseEmitter.event().name("overflow").data(dropped));
+            }
+            PriceAlert alert;
+            while ((alert = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event().name("alert").id(String.valueOf(alert.getId())).data(alert));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter already completed
+            log.debug("Dropping alert stream of user {}: {}", subscriber.userId, e.getMessage());
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // An alert queued after the last poll but before the flag was cleared still needs sending
+        if (!subscriber.buffer.isEmpty() || subscriber.dropped.get() > 0) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribersByUser.computeIfPresent(subscriber.userId, (userId, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static final class Subscriber {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<PriceAlert> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicInteger dropped = new AtomicInteger();
+
+        Subscriber(String userId, SseEmitter emitter, BlockingQueue<PriceAlert> buffer) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.data.EquivalenceClasses;
+import com.accesa.pricecomparator.data.ProductIndex;
+import com.accesa.pricecomparator.model.Basket;
+import com.accesa.pricecomparator.model.BasketItem;
+import com.accesa.pricecomparator.model.BasketLine;
+import com.accesa.pricecomparator.model.BasketRequest;
+import com.accesa.pricecomparator.model.BasketResult;
+import com.accesa.pricecomparator.model.Product;
+import com.accesa.pricecomparator.model.SplitBasketResult;
+import com.accesa.pricecomparator.model.StoreBasket;
+import com.accesa.pricecomparator.model.StoreQuote;
+import com.accesa.pricecomparator.util.UnitNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BasketService {
+
+    // Baskets evaluated per task of a batch; small enough to stream early, large enough to amortize scheduling
+    private static final int BATCH_CHUNK_SIZE = 64;
+
+    private final CSVService csvService;
+    private final QueryCache queryCache;
+
+    // Number of threads evaluating batch baskets (0 = one thread per available core)
+    @Value("${app.basket.batch.parallelism:0}")
+    private int batchParallelism;
+
+    // Largest number of baskets accepted in one batch request
+    @Value("${app.basket.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    private ExecutorService batchPool;
+
+    @PostConstruct
+    public void startBatchPool() {
+        int threads = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        batchPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "basket-batch-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdownNow();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Prices many baskets against one dataset snapshot. Every (product, date) pair is looked
+     * up once for the whole batch, then the baskets are summed in parallel and each result
+     * is handed to the sink as soon as its chunk finishes, on the calling thread.
+     * @param baskets Baskets to price
+     * @param date Date for baskets without their own, if null uses latest data
+     * @param sink Receives one result per basket, in completion order
+     */
+    public void optimizeShoppingBaskets(List<BasketRequest> baskets, LocalDate date, Consumer<BasketResult> sink) {
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+
+        // Listing price per store for every distinct (date, product) of the batch
+        Map<LocalDate, Map<String, Map<String, Double>>> listings = new HashMap<>();
+        SortedSet<String> storeNames = new TreeSet<>();
+        for (BasketRequest basket : baskets) {
+            LocalDate basketDate = basket.getDate() != null ? basket.getDate() : date;
+            Map<String, Map<String, Double>> byProduct = listings.computeIfAbsent(basketDate, k -> new HashMap<>());
+            for (String productId : productIdsOf(basket)) {
+                if (byProduct.containsKey(productId)) {
+                    continue;
+                }
+                Map<String, Double> byStore = new HashMap<>();
+                index.getSeriesByStore(productId).values().forEach(series -> {
+                    Product product = basketDate == null ? series.latest() : series.onDate(basketDate);
+                    if (product != null) {
+                        byStore.put(product.getStore(), priceOf(product));
+                        storeNames.add(product.getStore());
+                    }
+                });
+                byProduct.put(productId, byStore);
+            }
+        }
+
+        // Same prices as rows over the batch's stores; NaN marks a store not selling the item
+        List<String> stores = new ArrayList<>(storeNames);
+        Map<LocalDate, Map<String, double[]>> prices = new HashMap<>();
+        listings.forEach((listingDate, byProduct) -> {
+            Map<String, double[]> rows = new HashMap<>(byProduct.size() * 2);
+            byProduct.forEach((productId, byStore) -> {
+                double[] row = new double[stores.size()];
+                for (int store = 0; store < stores.size(); store++) {
+                    Double price = byStore.get(stores.get(store));
+                    row[store] = price != null ? price : Double.NaN;
+                }
+                rows.put(productId, row);
+            });
+            prices.put(listingDate, rows);
+        });
+
+        // Workers only read the finished price rows; finished chunks are queued for the caller
+        BlockingQueue<CompletableFuture<List<BasketResult>>> finished = new LinkedBlockingQueue<>();
+        List<CompletableFuture<List<BasketResult>>> chunks = new ArrayList<>();
+        for (int start = 0; start < baskets.size(); start += BATCH_CHUNK_SIZE) {
+            int from = start;
+            int to = Math.min(baskets.size(), start + BATCH_CHUNK_SIZE);
+            CompletableFuture<List<BasketResult>> chunk = CompletableFuture.supplyAsync(() -> {
+                List<BasketResult> results = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    BasketRequest basket = baskets.get(i);
+                    LocalDate basketDate = basket.getDate() != null ? basket.getDate() : date;
+                    results.add(priceBasket(i, basket, basketDate, stores, prices.get(basketDate)));
+                }
+                return results;
+            }, batchPool);
+            chunk.whenComplete((results, error) -> finished.add(chunk));
+            chunks.add(chunk);
+        }
+
+        try {
+            for (int received = 0; received < chunks.size(); received++) {
+                finished.take().join().forEach(sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while optimizing baskets", e);
+        } finally {
+            // Stops chunks that have not started yet when the caller gives up early
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+    }
+
+    private static BasketResult priceBasket(int index, BasketRequest basket, LocalDate date,
+                                            List<String> stores, Map<String, double[]> prices) {
+        List<String> productIds = productIdsOf(basket);
+        Map<String, Double> storeTotals = new TreeMap<>();
+        String cheapestStore = null;
+        Double cheapestTotal = null;
+
+        if (!productIds.isEmpty()) {
+            // A missing item turns the store's total into NaN
+            double[] totals = new double[stores.size()];
+            for (String productId : productIds) {
+                double[] row = prices.get(productId);
+                for (int store = 0; store < totals.length; store++) {
+                    totals[store] += row[store];
+                }
+            }
+            for (int store = 0; store < totals.length; store++) {
+                if (Double.isNaN(totals[store])) {
+                    continue;
+                }
+                storeTotals.put(stores.get(store), totals[store]);
+                if (cheapestTotal == null || totals[store] < cheapestTotal) {
+                    cheapestStore = stores.get(store);
+                    cheapestTotal = totals[store];
+                }
+            }
+        }
+        return new BasketResult(index, basket.getId(), date, storeTotals, cheapestStore, cheapestTotal);
+    }
+
+    private static List<String> productIdsOf(BasketRequest basket) {
+        return basket.getProductIds() != null ? basket.getProductIds() : Collections.emptyList();
+    }
+
+    /**
+     * Prices a basket with quantities in every store able to supply all of it. When
+     * equivalents are allowed, each item is bought as whichever listed product covers the
+     * requested amount (quantity times the requested package size) for the least money,
+     * the requested product or one of its precomputed equivalents.
+     * @param basket Items with quantities and the equivalents flag; every item needs a product ID
+     * @param date Date for pricing, if null uses latest data
+     * @return Store quotes, cheapest first
+     */
+    public List<StoreQuote> quoteBasket(Basket basket, LocalDate date) {
+        // Keyed by the items rather than the request object; quantities below 1 count as 1
+        List<String> items = new ArrayList<>();
+        if (basket.getItems() != null) {
+            basket.getItems().forEach(item -> items.add(item.getProductId() + "x" + Math.max(1, item.getQuantity())));
+        }
+        return queryCache.get("baskets.quote", () -> findStoreQuotes(basket, date),
+                items, basket.isAllowEquivalents(), date);
+    }
+
+    private List<StoreQuote> findStoreQuotes(Basket basket, LocalDate date) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        ProductIndex index = snapshot.getProductIndex();
+        EquivalenceClasses equivalenceClasses = snapshot.getEquivalenceClasses();
+        List<BasketItem> items = basket.getItems() != null ? basket.getItems() : Collections.emptyList();
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Cheapest way to cover each item, per store
+        List<Map<String, BasketLine>> linesByItem = new ArrayList<>(items.size());
+        for (BasketItem item : items) {
+            int quantity = Math.max(1, item.getQuantity());
+            Map<String, BasketLine> byStore = new HashMap<>();
+            index.getSeriesByStore(item.getProductId()).values().forEach(series -> {
+                Product product = date == null ? series.latest() : series.onDate(date);
+                if (product != null) {
+                    byStore.put(product.getStore(), new BasketLine(item.getProductId(), product, quantity,
+                            quantity * priceOf(product), false));
+                }
+            });
+
+            double amount = quantity * equivalenceClasses.getBaseQuantity(item.getProductId());
+            if (basket.isAllowEquivalents() && !Double.isNaN(amount)) {
+                for (String equivalentId : equivalenceClasses.getEquivalents(item.getProductId())) {
+                    index.getSeriesByStore(equivalentId).values().forEach(series -> {
+                        Product product = date == null ? series.latest() : series.onDate(date);
+                        if (product == null) {
+                            return;
+                        }
+                        double packageSize = UnitNormalizer.toBaseQuantity(product.getPackageQuantity(), product.getPackageUnit());
+                        if (Double.isNaN(packageSize) || packageSize <= 0) {
+                            return;
+                        }
+                        // Whole packages only; the small tolerance keeps 3 x 0.1 kg from needing 4 packages
+                        int packages = (int) Math.ceil(amount / packageSize - 1e-9);
+                        double lineTotal = packages * priceOf(product);
+                        BasketLine current = byStore.get(product.getStore());
+                        if (current == null || lineTotal < current.getLineTotal()) {
+                            byStore.put(product.getStore(), new BasketLine(item.getProductId(), product, packages,
+                                    lineTotal, true));
+                        }
+                    });
+                }
+            }
+            linesByItem.add(byStore);
+        }
+
+        // Only stores supplying every item get a quote
+        Set<String> stores = new TreeSet<>(linesByItem.get(0).keySet());
+        linesByItem.forEach(byStore -> stores.retainAll(byStore.keySet()));
+
+        List<StoreQuote> quotes = new ArrayList<>();
+        for (String store : stores) {
+            List<BasketLine> lines = new ArrayList<>(items.size());
+            double total = 0;
+            for (Map<String, BasketLine> byStore : linesByItem) {
+                BasketLine line = byStore.get(store);
+                lines.add(line);
+                total += line.getLineTotal();
+            }
+            quotes.add(new StoreQuote(store, lines, total));
+        }
+        quotes.sort(Comparator.comparingDouble(StoreQuote::getTotal));
+        return quotes;
+    }
+
+    /**
+     * Splits a shopping basket across stores: picks at most maxStores stores and buys each
+     * item in the cheapest of them, minimizing item prices plus a penalty per store visited
+     * @param productIds List of product IDs in the basket
+     * @param date Date for pricing, if null uses latest data
+     * @param maxStores Maximum number of stores to visit
+     * @param storePenalty Cost added for every store visited
+     * @return Items to buy in each store, with the totals
+     */
+    public SplitBasketResult optimizeSplitBasket(List<String> productIds, LocalDate date, int maxStores, double storePenalty) {
+        return queryCache.get("baskets.split", () -> findSplitBasket(productIds, date, maxStores, storePenalty),
+                productIds, date, maxStores, storePenalty);
+    }
+
+    private SplitBasketResult findSplitBasket(List<String> productIds, LocalDate date, int maxStores, double storePenalty) {
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+
+        // Listing of every basket item in every store selling it
+        List<Map<String, Product>> listings = new ArrayList<>(productIds.size());
+        SortedSet<String> storeNames = new TreeSet<>();
+        for (String productId : productIds) {
+            Map<String, Product> byStore = new HashMap<>();
+            index.getSeriesByStore(productId).forEach((store, series) -> {
+                Product product = date == null ? series.latest() : series.onDate(date);
+                if (product != null) {
+                    byStore.put(product.getStore(), product);
+                    storeNames.add(product.getStore());
+                }
+            });
+            listings.add(byStore);
+        }
+        List<String> stores = new ArrayList<>(storeNames);
+
+        // Item prices per store; missing listings are marked with NaN
+        double[][] prices = new double[productIds.size()][stores.size()];
+        for (int item = 0; item < productIds.size(); item++) {
+            for (int store = 0; store < stores.size(); store++) {
+                Product product = listings.get(item).get(stores.get(store));
+                prices[item][store] = product != null ? priceOf(product) : Double.NaN;
+            }
+        }
+
+        int[] chosenStores = new SplitSolver(prices, Math.max(1, maxStores), Math.max(0, storePenalty)).solve();
+
+        // Buy each item in the cheapest chosen store (the first by name on a tie)
+        Map<Integer, List<Product>> itemsByStore = new TreeMap<>();
+        List<String> unavailable = new ArrayList<>();
+        double itemsCost = 0;
+        for (int item = 0; item < productIds.size(); item++) {
+            int cheapest = -1;
+            for (int store : chosenStores) {
+                if (!Double.isNaN(prices[item][store]) && (cheapest < 0 || prices[item][store] < prices[item][cheapest])) {
+                    cheapest = store;
+                }
+            }
+            if (cheapest < 0) {
+                unavailable.add(productIds.get(item));
+                continue;
+            }
+            itemsByStore.computeIfAbsent(cheapest, k -> new ArrayList<>()).add(listings.get(item).get(stores.get(cheapest)));
+            itemsCost += prices[item][cheapest];
+        }
+
+        List<StoreBasket> storeBaskets = new ArrayList<>();
+        itemsByStore.forEach((store, items) -> storeBaskets.add(new StoreBasket(stores.get(store), items,
+                items.stream().mapToDouble(BasketService::priceOf).sum())));
+        double penalty = Math.max(0, storePenalty) * storeBaskets.size();
+        return new SplitBasketResult(storeBaskets, itemsCost, penalty, itemsCost + penalty, unavailable);
+    }
+
+    private static double priceOf(Product product) {
+        return product.getDiscountedPrice() != null ? product.getDiscountedPrice() : product.getPrice();
+    }
+
+    /**
+     * Branch and bound over store subsets. Each node starts from the stores chosen so far
+     * and tries adding each remaining store, best saving first, so the first path is the
+     * greedy split. Savings only shrink as stores are added, so the free store slots can
+     * save at most the sum of the largest remaining single-store savings; once that cannot
+     * beat the best split found, the rest of the node is skipped. Items a subset cannot
+     * supply cost more than any complete split, so covering more items always wins.
+     */
+    private static final class SplitSolver {
+        private final int items;
+        private final int stores;
+        private final int maxStores;
+        private final double penalty;
+
+        private final double[][] cost;
+        // Cheapest price of each item among the chosen stores, per number of chosen stores
+        private final double[][] chosenMin;
+
+        private final int[] chosen;
+        private int[] best = new int[0];
+        private double bestCost = Double.POSITIVE_INFINITY;
+
+        SplitSolver(double[][] prices, int maxStores, double penalty) {
+            this.items = prices.length;
+            this.stores = items > 0 ? prices[0].length : 0;
+            this.maxStores = Math.min(maxStores, stores);
+            this.penalty = penalty;
+
+            double missing = 1 + penalty * this.maxStores;
+            for (double[] itemPrices : prices) {
+                double highest = 0;
+                for (double price : itemPrices) {
+                    if (!Double.isNaN(price)) {
+                        highest = Math.max(highest, price);
+                    }
+                }
+                missing += highest;
+            }
+            cost = new double[items][stores];
+            for (int item = 0; item < items; item++) {
+                for (int store = 0; store < stores; store++) {
+                    cost[item][store] = Double.isNaN(prices[item][store]) ? missing : prices[item][store];
+                }
+            }
+
+            // Before any store is chosen every item counts as missing
+            chosenMin = new double[this.maxStores + 1][items];
+            Arrays.fill(chosenMin[0], missing);
+            chosen = new int[this.maxStores];
+        }
+
+        int[] solve() {
+            if (items > 0 && stores > 0) {
+                int[] all = new int[stores];
+                for (int store = 0; store < stores; store++) {
+                    all[store] = store;
+                }
+                search(all, 0, Arrays.stream(chosenMin[0]).sum());
+            }
+            int[] stores = best.clone();
+            Arrays.sort(stores);
+            return stores;
+        }
+
+        private void search(int[] remaining, int count, double currentCost) {
+            if (count == maxStores) {
+                return;
+            }
+            double[] current = chosenMin[count];
+
+            // Saving of each remaining store on its own, net of its penalty; stores that
+            // save nothing now cannot save anything once more stores are added
+            int candidates = 0;
+            int[] stores = new int[remaining.length];
+            double[] savings = new double[remaining.length];
+            for (int store : remaining) {
+                double saving = -penalty;
+                for (int item = 0; item < items; item++) {
+                    saving += Math.max(0, current[item] - cost[item][store]);
+                }
+                if (saving > 0) {
+                    stores[candidates] = store;
+                    savings[candidates++] = saving;
+                }
+            }
+            sortBySaving(stores, savings, candidates);
+
+            int slots = maxStores - count;
+            for (int next = 0; next < candidates; next++) {
+                double reachable = 0;
+                for (int slot = next; slot < next + slots && slot < candidates; slot++) {
+                    reachable += savings[slot];
+                }
+                if (currentCost - reachable >= bestCost) {
+                    break;
+                }
+
+                int store = stores[next];
+                double[] with = chosenMin[count + 1];
+                for (int item = 0; item < items; item++) {
+                    with[item] = Math.min(current[item], cost[item][store]);
+                }
+                double withCost = currentCost - savings[next];
+                chosen[count] = store;
+                if (withCost < bestCost) {
+                    bestCost = withCost;
+                    best = Arrays.copyOf(chosen, count + 1);
+                }
+                search(Arrays.copyOfRange(stores, next + 1, candidates), count + 1, withCost);
+            }
+        }
+
+        // Highest saving first, then by store index
+        private static void sortBySaving(int[] stores, double[] savings, int count) {
+            Integer[] byIndex = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                byIndex[i] = i;
+            }
+            Arrays.sort(byIndex, Comparator.comparingDouble((Integer i) -> -savings[i]).thenComparingInt(i -> stores[i]));
+
+            int[] sortedStores = new int[count];
+            double[] sortedSavings = new double[count];
+            for (int i = 0; i < count; i++) {
+                sortedStores[i] = stores[byIndex[i]];
+                sortedSavings[i] = savings[byIndex[i]];
+            }
+            System.arraycopy(sortedStores, 0, stores, 0, count);
+            System.arraycopy(sortedSavings, 0, savings, 0, count);
+        }
+    }
+}
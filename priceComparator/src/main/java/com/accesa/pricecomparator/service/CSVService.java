@@ -1,19 +1,44 @@
 package com.accesa.pricecomparator.service;
 
+import com.accesa.pricecomparator.data.DatasetCache;
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.data.DatasetStamp;
+import com.accesa.pricecomparator.data.DiscountTimelines;
 import com.accesa.pricecomparator.model.Discount;
 import com.accesa.pricecomparator.model.Product;
+import com.accesa.pricecomparator.model.ReloadStatus;
 import com.accesa.pricecomparator.util.CSVHelper;
+import com.accesa.pricecomparator.util.DataFile;
+import com.accesa.pricecomparator.util.FileFingerprint;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,27 +47,470 @@ import java.util.stream.Collectors;
 public class CSVService {
 
     private final CSVHelper csvHelper;
+    private final DatasetCache datasetCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.data.directory:./data}")
     private String dataDirectory;
 
-    private final List<Product> allProducts = new ArrayList<>();
-    private final List<Discount> allDiscounts = new ArrayList<>();
-    private final Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate = new HashMap<>();
-    private final Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate = new HashMap<>();
+    // Number of files parsed concurrently at load time (0 = one thread per available core)
+    @Value("${app.data.ingestion.parallelism:0}")
+    private int ingestionParallelism;
+
+    // Everything readers see; reloads build the next snapshot off to the side and swap it in here
+    private final AtomicReference<DatasetSnapshot> snapshot = new AtomicReference<>(DatasetSnapshot.EMPTY);
+
+    // Set after each swap of snapshot, so a reader seeing a stamp also sees its snapshot or a newer one
+    private volatile DatasetStamp stamp = DatasetStamp.EMPTY;
+
+    // Size and modification time of every ingested file, only touched while holding reloadLock
+    private Map<String, FileFingerprint> ingestedFiles = new HashMap<>();
+    private final Object reloadLock = new Object();
+
+    // Reloads requested by the directory watcher or the admin endpoint run here, one at a time
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ReloadStatus reloadStatus = new ReloadStatus();
+    private final AtomicInteger filesParsed = new AtomicInteger();
 
     @PostConstruct
     public void loadAllData() {
-        loadProducts();
-        loadDiscounts();
-        applyDiscountsToProducts();
+        long start = System.nanoTime();
+        if (loadFromCache()) {
+            log.info("Startup load took {} ms (dataset cache hit)", (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+
+        reload("startup");
+        log.info("Startup load took {} ms (dataset cache {})", (System.nanoTime() - start) / 1_000_000,
+                datasetCache.isEnabled() ? "miss" : "disabled");
+    }
+
+    private boolean loadFromCache() {
+        if (!datasetCache.isEnabled()) {
+            return false;
+        }
+
+        synchronized (reloadLock) {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long start = System.nanoTime();
+            Map<String, FileFingerprint> fingerprints = fingerprint(findDataFiles());
+            Optional<DatasetSnapshot> cached = datasetCache.read(fingerprints, snapshot.get().getVersion() + 1);
+            if (cached.isEmpty()) {
+                return false;
+            }
+
+            DatasetSnapshot loaded = cached.get();
+            DatasetSnapshot previous = snapshot.getAndSet(loaded);
+            stamp = DatasetStamp.of(loaded.getVersion(), fingerprints.values(), stamp);
+            publish(previous, loaded);
+            ingestedFiles = fingerprints;
+
+            ReloadStatus status = new ReloadStatus();
+            status.setState(ReloadStatus.State.COMPLETED);
+            status.setTrigger("cache");
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(LocalDateTime.now());
+            status.setDurationMs((System.nanoTime() - start) / 1_000_000);
+            status.setRowsLoaded(loaded.getProducts().size() + loaded.getDiscounts().size());
+            status.setDatasetVersion(loaded.getVersion());
+            reloadStatus = status;
+            log.info("Loaded {} products and {} discounts from the dataset cache",
+                    loaded.getProducts().size(), loaded.getDiscounts().size());
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    /**
+     * Schedules a reload of the data directory on the reload thread
+     * @param trigger Who asked for the reload (shown in the reload status)
+     * @return Future completed with the final reload status
+     */
+    public CompletableFuture<ReloadStatus> reloadAsync(String trigger) {
+        return reloadAsync(trigger, false);
+    }
+
+    /**
+     * Schedules a reload of the data directory on the reload thread
+     * @param trigger Who asked for the reload (shown in the reload status)
+     * @param full Whether to re-parse every file, changed or not
+     * @return Future completed with the final reload status
+     */
+    public CompletableFuture<ReloadStatus> reloadAsync(String trigger, boolean full) {
+        return CompletableFuture.supplyAsync(() -> reload(trigger, full), reloadExecutor);
+    }
+
+    /**
+     * Ingests product and discount files that were added, modified or removed since the
+     * last load. Only the store/date partitions of those files are re-parsed; the rest of
+     * the dataset is carried over, and the result is published as a new dataset version.
+     * A partition with a file that fails to parse keeps its previous rows and is retried
+     * on the next reload; the reload then ends as FAILED, listing the files.
+     * @param trigger Who asked for the reload (shown in the reload status)
+     * @return Final reload status
+     */
+    public ReloadStatus reload(String trigger) {
+        return reload(trigger, false);
+    }
+
+    /**
+     * Ingests the data directory like {@link #reload(String)}, or re-parses every file when
+     * asked to, e.g. after a file was replaced without changing its size and modification time
+     * @param trigger Who asked for the reload (shown in the reload status)
+     * @param full Whether to re-parse every file, changed or not
+     * @return Final reload status
+     */
+    public ReloadStatus reload(String trigger, boolean full) {
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            ReloadStatus status = new ReloadStatus();
+            status.setState(ReloadStatus.State.RUNNING);
+            status.setTrigger(trigger);
+            status.setStartedAt(LocalDateTime.now());
+            status.setDatasetVersion(snapshot.get().getVersion());
+            filesParsed.set(0);
+            reloadStatus = status;
+
+            try {
+                List<DataFile> files = findDataFiles();
+                Map<String, FileFingerprint> fingerprints = fingerprint(files);
+
+                // Work out which store/date partitions have to be rebuilt
+                Map<String, Set<LocalDate>> affectedPartitions = new HashMap<>();
+                int changed = 0;
+                for (FileFingerprint fingerprint : fingerprints.values()) {
+                    if (full || !fingerprint.equals(ingestedFiles.get(fingerprint.getPath()))) {
+                        addPartition(affectedPartitions, fingerprint.getFile());
+                        changed++;
+                    }
+                }
+                int removed = 0;
+                for (FileFingerprint fingerprint : ingestedFiles.values()) {
+                    if (!fingerprints.containsKey(fingerprint.getPath())) {
+                        addPartition(affectedPartitions, fingerprint.getFile());
+                        removed++;
+                    }
+                }
+                status.setChangedFiles(changed);
+                status.setRemovedFiles(removed);
+
+                if (!affectedPartitions.isEmpty()) {
+                    List<DataFile> filesToParse = files.stream()
+                            .filter(file -> affectedPartitions.getOrDefault(file.getStore(), Collections.emptySet())
+                                    .contains(file.getDate()))
+                            .collect(Collectors.toList());
+                    status.setFilesToParse(filesToParse.size());
+
+                    DatasetSnapshot current = snapshot.get();
+                    List<DataFile> failedFiles = new ArrayList<>();
+                    DatasetSnapshot next = rebuildPartitions(current, affectedPartitions, filesToParse, failedFiles);
+                    Map<String, Set<LocalDate>> failedPartitions = new HashMap<>();
+                    failedFiles.forEach(file -> addPartition(failedPartitions, file));
+
+                    // Nothing to publish when every partition that changed was kept as it was
+                    if (!failedPartitions.equals(affectedPartitions)) {
+                        if (!snapshot.compareAndSet(current, next)) {
+                            throw new IllegalStateException("Dataset was replaced outside of a reload");
+                        }
+                        Map<String, FileFingerprint> ingested = keepFingerprints(fingerprints, failedPartitions);
+                        stamp = DatasetStamp.of(next.getVersion(), ingested.values(), stamp);
+                        ingestedFiles = ingested;
+                        publish(current, next);
+                        // The cache is only valid for the files as they are on disk
+                        if (failedFiles.isEmpty()) {
+                            datasetCache.write(next, fingerprints.values());
+                        }
+                    }
+
+                    if (!failedFiles.isEmpty()) {
+                        status.setFailedFiles(failedFiles.stream().map(DataFile::getPath).collect(Collectors.toList()));
+                        status.setError("Could not parse " + failedFiles.size() + " file(s), their partitions were kept");
+                        log.warn("Reload ({}) kept the previous rows of {} partitions whose files failed to parse: {}",
+                                trigger, failedPartitions.values().stream().mapToInt(Set::size).sum(), status.getFailedFiles());
+                    }
+                }
+
+                long elapsed = System.nanoTime() - start;
+                status.setState(status.getFailedFiles().isEmpty() ? ReloadStatus.State.COMPLETED : ReloadStatus.State.FAILED);
+                status.setDurationMs(elapsed / 1_000_000);
+                DatasetSnapshot published = snapshot.get();
+                status.setRowsLoaded(published.getProducts().size() + published.getDiscounts().size());
+                log.info("Reload ({}) published dataset version {}: {} changed and {} removed files, {} partitions rebuilt in {} ms",
+                        trigger, published.getVersion(), changed, removed,
+                        affectedPartitions.values().stream().mapToInt(Set::size).sum(), elapsed / 1_000_000);
+            } catch (RuntimeException e) {
+                status.setState(ReloadStatus.State.FAILED);
+                status.setError(e.getMessage());
+                status.setDurationMs((System.nanoTime() - start) / 1_000_000);
+                log.error("Reload ({}) failed, keeping dataset version {}", trigger, snapshot.get().getVersion(), e);
+            }
+
+            status.setFilesParsed(filesParsed.get());
+            status.setDatasetVersion(snapshot.get().getVersion());
+            status.setFinishedAt(LocalDateTime.now());
+            // Re-publish so readers of the volatile field see the final values
+            reloadStatus = status;
+            return getReloadStatus();
+        }
+    }
+
+    // Listeners run on this thread; a failing listener must not fail the reload that already published
+    private void publish(DatasetSnapshot previous, DatasetSnapshot next) {
+        try {
+            eventPublisher.publishEvent(new DatasetPublishedEvent(previous, next));
+        } catch (RuntimeException e) {
+            log.error("Dataset version {} listener failed", next.getVersion(), e);
+        }
+    }
+
+    /**
+     * Gets the progress of the running reload, or the outcome of the last one
+     * @return Copy of the reload status
+     */
+    public ReloadStatus getReloadStatus() {
+        ReloadStatus status = reloadStatus;
+        ReloadStatus copy = new ReloadStatus(status.getState() != null ? status.getState() : ReloadStatus.State.IDLE,
+                status.getTrigger(), status.getStartedAt(), status.getFinishedAt(), status.getDurationMs(),
+                status.getChangedFiles(), status.getRemovedFiles(), status.getFilesToParse(), status.getFilesParsed(),
+                status.getRowsLoaded(), status.getDatasetVersion(), status.getError(), status.getFailedFiles());
+        if (status.getState() == ReloadStatus.State.RUNNING) {
+            copy.setFilesParsed(filesParsed.get());
+        }
+        return copy;
+    }
+
+    public boolean isReloading() {
+        return reloadStatus.getState() == ReloadStatus.State.RUNNING;
+    }
+
+    /**
+     * Gets the currently published dataset. Callers that need several consistent reads
+     * should hold on to one snapshot instead of calling the getters below repeatedly.
+     * @return Current immutable snapshot
+     */
+    public DatasetSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public long getDatasetVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    /**
+     * Gets the identity of the published dataset, for HTTP validators. It may lag the
+     * snapshot for the moment between a swap and the stamp that follows it, never lead it.
+     * @return Stamp of the latest published dataset
+     */
+    public DatasetStamp getDatasetStamp() {
+        return stamp;
+    }
+
+    /**
+     * Reads the published snapshot together with its own stamp, for results that have to
+     * name the dataset they were read from, like listing cursors
+     * @param reader Reads the snapshot, given the stamp with the same version
+     * @return Result of the reader
+     */
+    public <T> T readStamped(BiFunction<DatasetSnapshot, DatasetStamp, T> reader) {
+        while (true) {
+            DatasetSnapshot current = snapshot.get();
+            DatasetStamp currentStamp = stamp;
+            if (currentStamp.getVersion() == current.getVersion()) {
+                return reader.apply(current, currentStamp);
+            }
+            // Between a swap and the stamp that follows it
+            Thread.onSpinWait();
+        }
+    }
+
+    private List<DataFile> findDataFiles() {
+        List<DataFile> files = new ArrayList<>();
+        csvHelper.findProductFiles(dataDirectory).stream()
+                .map(csvHelper::describeFile)
+                .filter(Objects::nonNull)
+                .forEach(files::add);
+        csvHelper.findDiscountFiles(dataDirectory).stream()
+                .map(csvHelper::describeFile)
+                .filter(Objects::nonNull)
+                .forEach(files::add);
+        return files;
+    }
+
+    private static Map<String, FileFingerprint> fingerprint(List<DataFile> files) {
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        files.forEach(file -> fingerprints.put(file.getPath(), FileFingerprint.of(file)));
+        return fingerprints;
+    }
+
+    private static void addPartition(Map<String, Set<LocalDate>> partitions, DataFile file) {
+        partitions.computeIfAbsent(file.getStore(), k -> new HashSet<>()).add(file.getDate());
+    }
+
+    private static boolean inPartitions(Map<String, Set<LocalDate>> partitions, DataFile file) {
+        return partitions.getOrDefault(file.getStore(), Collections.emptySet()).contains(file.getDate());
+    }
+
+    // Files of kept partitions stay at their previously ingested fingerprint (or absent), so the next reload retries them
+    private Map<String, FileFingerprint> keepFingerprints(Map<String, FileFingerprint> fingerprints,
+                                                         Map<String, Set<LocalDate>> keptPartitions) {
+        if (keptPartitions.isEmpty()) {
+            return fingerprints;
+        }
+        Map<String, FileFingerprint> kept = new HashMap<>(fingerprints);
+        fingerprints.values().stream()
+                .filter(fingerprint -> inPartitions(keptPartitions, fingerprint.getFile()))
+                .forEach(fingerprint -> kept.remove(fingerprint.getPath()));
+        ingestedFiles.values().stream()
+                .filter(fingerprint -> inPartitions(keptPartitions, fingerprint.getFile()))
+                .forEach(fingerprint -> kept.put(fingerprint.getPath(), fingerprint));
+        return kept;
     }
 
-    private void loadProducts() {
-        List<String> productFiles = csvHelper.findProductFiles(dataDirectory);
-        for (String file : productFiles) {
-            List<Product> products = csvHelper.parseProductCSV(file);
-            allProducts.addAll(products);
+    private DatasetSnapshot rebuildPartitions(DatasetSnapshot current, Map<String, Set<LocalDate>> affectedPartitions,
+                                      List<DataFile> filesToParse, List<DataFile> failedFiles) {
+        long start = System.nanoTime();
+
+        Map<DataFile, CompletableFuture<List<Product>>> parsedProducts = new LinkedHashMap<>();
+        Map<DataFile, CompletableFuture<List<Discount>>> parsedDiscounts = new LinkedHashMap<>();
+        ExecutorService pool = createIngestionPool(filesToParse.size());
+        try {
+            // Submit every file up front so discount parsing overlaps product parsing
+            filesToParse.stream()
+                    .filter(file -> file.getType() == DataFile.Type.PRODUCTS)
+                    .forEach(file -> parsedProducts.put(file, CompletableFuture.supplyAsync(() -> parseFile(file, path ->
+                            normalizeUnitPrices(csvHelper.parseProductCSV(path))), pool)));
+            filesToParse.stream()
+                    .filter(file -> file.getType() == DataFile.Type.DISCOUNTS)
+                    .forEach(file -> parsedDiscounts.put(file,
+                            CompletableFuture.supplyAsync(() -> parseFile(file, csvHelper::parseDiscountCSV), pool)));
+
+            // Every file has to be read before any partition is replaced
+            parsedProducts.forEach((file, parsed) -> {
+                if (parsed.join() == null) {
+                    failedFiles.add(file);
+                }
+            });
+            parsedDiscounts.forEach((file, parsed) -> {
+                if (parsed.join() == null) {
+                    failedFiles.add(file);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        Map<String, Set<LocalDate>> failedPartitions = new HashMap<>();
+        failedFiles.forEach(file -> addPartition(failedPartitions, file));
+
+        // Unchanged partitions, and those with a file that failed, are shared with the current version;
+        // their lists are never modified
+        Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate = copyPartitions(current.getProductsByStoreAndDate());
+        Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate = copyPartitions(current.getDiscountsByStoreAndDate());
+        affectedPartitions.forEach((store, dates) -> dates.stream()
+                .filter(date -> !failedPartitions.getOrDefault(store, Collections.emptySet()).contains(date))
+                .forEach(date -> {
+                    removePartition(productsByStoreAndDate, store, date);
+                    removePartition(discountsByStoreAndDate, store, date);
+                }));
+
+        // Merging happens on this thread only, in file order, so the maps need no locking
+        List<Product> newProducts = new ArrayList<>();
+        int parsedRows = 0;
+        loadProducts(withoutPartitions(parsedProducts, failedPartitions), productsByStoreAndDate, newProducts);
+        parsedRows += loadDiscounts(withoutPartitions(parsedDiscounts, failedPartitions), discountsByStoreAndDate);
+
+        // Discounts can run into later product files, so every product of an affected store is re-joined
+        DiscountTimelines timelines = new DiscountTimelines(current.getDiscountTimelines(), discountsByStoreAndDate,
+                affectedPartitions.keySet());
+        applyDiscountsToProducts(productsByStoreAndDate, affectedPartitions.keySet(), timelines);
+
+        DatasetSnapshot next = DatasetSnapshot.of(current.getVersion() + 1, productsByStoreAndDate,
+                discountsByStoreAndDate, timelines);
+        long elapsed = System.nanoTime() - start;
+        parsedRows += newProducts.size();
+        log.info("Ingested {} rows from {} files in {} ms ({} rows/sec)",
+                parsedRows, filesToParse.size(), elapsed / 1_000_000, rowsPerSecond(parsedRows, elapsed));
+        return next;
+    }
+
+    // Unit normalization stage: runs on the ingestion threads, right after a file is parsed
+    private static List<Product> normalizeUnitPrices(List<Product> products) {
+        products.forEach(Product::normalizeUnitPrice);
+        return products;
+    }
+
+    private static <T> Map<String, Map<LocalDate, List<T>>> copyPartitions(Map<String, Map<LocalDate, List<T>>> partitions) {
+        Map<String, Map<LocalDate, List<T>>> copy = new TreeMap<>();
+        partitions.forEach((store, byDate) -> copy.put(store, new TreeMap<>(byDate)));
+        return copy;
+    }
+
+    private static <T> void removePartition(Map<String, Map<LocalDate, List<T>>> partitions, String store, LocalDate date) {
+        Map<LocalDate, List<T>> byDate = partitions.get(store);
+        if (byDate != null) {
+            byDate.remove(date);
+            if (byDate.isEmpty()) {
+                partitions.remove(store);
+            }
+        }
+    }
+
+    private ExecutorService createIngestionPool(int fileCount) {
+        int threads = ingestionParallelism > 0 ? ingestionParallelism : Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(threads, fileCount));
+
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-ingest-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> List<CompletableFuture<List<T>>> withoutPartitions(Map<DataFile, CompletableFuture<List<T>>> parsedFiles,
+                                                                          Map<String, Set<LocalDate>> partitions) {
+        return parsedFiles.entrySet().stream()
+                .filter(parsed -> !inPartitions(partitions, parsed.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    // Returns null if the file could not be parsed
+    private <T> List<T> parseFile(DataFile file, Function<String, List<T>> parser) {
+        long start = System.nanoTime();
+        List<T> rows;
+        try {
+            rows = parser.apply(file.getPath());
+        } catch (RuntimeException e) {
+            filesParsed.incrementAndGet();
+            log.error("Failed to parse {}, keeping its store/date partition as it was", file.getPath(), e);
+            return null;
+        }
+        long elapsed = System.nanoTime() - start;
+        filesParsed.incrementAndGet();
+        log.info("Parsed {} rows from {} in {} ms ({} rows/sec)",
+                rows.size(), Paths.get(file.getPath()).getFileName(), elapsed / 1_000_000, rowsPerSecond(rows.size(), elapsed));
+        return rows;
+    }
+
+    private static long rowsPerSecond(int rows, long elapsedNanos) {
+        return elapsedNanos > 0 ? Math.round(rows * 1_000_000_000.0 / elapsedNanos) : rows;
+    }
+
+    private void loadProducts(List<CompletableFuture<List<Product>>> parsedFiles,
+                              Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate,
+                              List<Product> loadedProducts) {
+        for (CompletableFuture<List<Product>> parsedFile : parsedFiles) {
+            List<Product> products = parsedFile.join();
+            loadedProducts.addAll(products);
 
             // Organize by store and date
             for (Product product : products) {
@@ -50,19 +518,20 @@ public class CSVService {
                 LocalDate date = product.getDate();
 
                 productsByStoreAndDate
-                        .computeIfAbsent(store, k -> new HashMap<>())
+                        .computeIfAbsent(store, k -> new TreeMap<>())
                         .computeIfAbsent(date, k -> new ArrayList<>())
                         .add(product);
             }
         }
-        log.info("Loaded {} products from {} files", allProducts.size(), productFiles.size());
+        log.info("Loaded {} products from {} files", loadedProducts.size(), parsedFiles.size());
     }
 
-    private void loadDiscounts() {
-        List<String> discountFiles = csvHelper.findDiscountFiles(dataDirectory);
-        for (String file : discountFiles) {
-            List<Discount> discounts = csvHelper.parseDiscountCSV(file);
-            allDiscounts.addAll(discounts);
+    private int loadDiscounts(List<CompletableFuture<List<Discount>>> parsedFiles,
+                              Map<String, Map<LocalDate, List<Discount>>> discountsByStoreAndDate) {
+        int loaded = 0;
+        for (CompletableFuture<List<Discount>> parsedFile : parsedFiles) {
+            List<Discount> discounts = parsedFile.join();
+            loaded += discounts.size();
 
             // Organize by store and date
             for (Discount discount : discounts) {
@@ -70,72 +539,96 @@ public class CSVService {
                 LocalDate date = discount.getDiscountDate();
 
                 discountsByStoreAndDate
-                        .computeIfAbsent(store, k -> new HashMap<>())
+                        .computeIfAbsent(store, k -> new TreeMap<>())
                         .computeIfAbsent(date, k -> new ArrayList<>())
                         .add(discount);
             }
         }
-        log.info("Loaded {} discounts from {} files", allDiscounts.size(), discountFiles.size());
-    }
-
-    private void applyDiscountsToProducts() {
-        for (Product product : allProducts) {
-            String store = product.getStore();
-            LocalDate date = product.getDate();
-            String productId = product.getProductId();
-
-            // Find applicable discounts for this product
-            List<Discount> applicableDiscounts = discountsByStoreAndDate
-                    .getOrDefault(store, new HashMap<>())
-                    .getOrDefault(date, new ArrayList<>())
-                    .stream()
-                    .filter(discount -> discount.getProductId().equals(productId) && discount.isActiveOn(date))
-                    .collect(Collectors.toList());
-
-            // Apply highest discount if multiple exist
-            if (!applicableDiscounts.isEmpty()) {
-                Discount highestDiscount = applicableDiscounts.stream()
-                        .max((d1, d2) -> d1.getPercentageDiscount().compareTo(d2.getPercentageDiscount()))
-                        .orElse(null);
-
-                if (highestDiscount != null) {
-                    product.setDiscountPercentage(highestDiscount.getPercentageDiscount());
-                    product.setDiscountedPrice(product.getDiscountedPriceValue());
+        log.info("Loaded {} discounts from {} files", loaded, parsedFiles.size());
+        return loaded;
+    }
+
+    /**
+     * Sets each product's discount to the highest one running in its store on its file date,
+     * taken from any discount file. Products of published snapshots are never modified: a
+     * product whose discount changes is replaced by an updated copy in its partition.
+     * @param productsByStoreAndDate Product partitions of the next snapshot
+     * @param stores Stores to re-join
+     * @param timelines Discount timelines of the next snapshot
+     */
+    private void applyDiscountsToProducts(Map<String, Map<LocalDate, List<Product>>> productsByStoreAndDate,
+                                          Set<String> stores, DiscountTimelines timelines) {
+        int updated = 0;
+        for (String store : stores) {
+            Map<LocalDate, List<Product>> byDate = productsByStoreAndDate.get(store);
+            if (byDate == null) {
+                continue;
+            }
+
+            for (Map.Entry<LocalDate, List<Product>> partition : byDate.entrySet()) {
+                List<Product> products = partition.getValue();
+                List<Product> joined = null;
+                for (int i = 0; i < products.size(); i++) {
+                    Product product = products.get(i);
+                    Discount discount = timelines.bestOn(product.getStore(), product.getProductId(), product.getDate());
+                    Integer percentage = discount != null ? discount.getPercentageDiscount() : null;
+                    if (Objects.equals(percentage, product.getDiscountPercentage())) {
+                        continue;
+                    }
+
+                    // Copy the partition on its first change; unchanged partitions stay shared
+                    if (joined == null) {
+                        joined = new ArrayList<>(products);
+                    }
+                    joined.set(i, withDiscount(product, percentage));
+                    updated++;
+                }
+                if (joined != null) {
+                    partition.setValue(joined);
                 }
             }
         }
-        log.info("Applied discounts to products");
+        log.info("Applied discounts to products in {} stores ({} products updated)", stores.size(), updated);
+    }
+
+    private static Product withDiscount(Product product, Integer percentage) {
+        Product joined = new Product(product.getProductId(), product.getProductName(), product.getProductCategory(),
+                product.getBrand(), product.getPackageQuantity(), product.getPackageUnit(), product.getPrice(),
+                product.getCurrency(), product.getStore(), product.getDate(), null, percentage,
+                product.getPricePerUnit(), product.getBaseUnit());
+        if (percentage != null) {
+            joined.setDiscountedPrice(joined.getDiscountedPriceValue());
+        }
+        return joined;
     }
 
     public List<Product> getAllProducts() {
-        return new ArrayList<>(allProducts);
+        return snapshot.get().getProducts();
     }
 
     public List<Discount> getAllDiscounts() {
-        return new ArrayList<>(allDiscounts);
+        return snapshot.get().getDiscounts();
     }
 
     public List<Product> getProductsByStore(String store) {
-        return allProducts.stream()
+        return snapshot.get().getProducts().stream()
                 .filter(product -> product.getStore().equalsIgnoreCase(store))
                 .collect(Collectors.toList());
     }
 
     public List<Product> getProductsByStoreAndDate(String store, LocalDate date) {
-        return productsByStoreAndDate
-                .getOrDefault(store, new HashMap<>())
-                .getOrDefault(date, new ArrayList<>());
+        return snapshot.get().getProducts(store, date);
     }
 
     public List<Product> getProductsByCategory(String category) {
-        return allProducts.stream()
+        return snapshot.get().getProducts().stream()
                 .filter(product -> product.getProductCategory().equalsIgnoreCase(category))
                 .collect(Collectors.toList());
     }
 
     public List<Discount> getDiscountsByStore(String store) {
-        return allDiscounts.stream()
+        return snapshot.get().getDiscounts().stream()
                 .filter(discount -> discount.getStore().equalsIgnoreCase(store))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package com.accesa.pricecomparator.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watches the data directory and asks CSVService to reload once new or modified
+ * CSV files have stopped changing for the configured quiet period.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DataDirectoryWatcher {
+
+    private final CSVService csvService;
+
+    @Value("${app.data.directory:./data}")
+    private String dataDirectory;
+
+    @Value("${app.data.watch.enabled:true}")
+    private boolean enabled;
+
+    // Quiet period after the last file event before a reload is triggered
+    @Value("${app.data.watch.debounce-ms:500}")
+    private long debounceMs;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        Path root = Paths.get(dataDirectory);
+        if (!Files.isDirectory(root)) {
+            log.warn("Data directory {} does not exist, hot reload is disabled", root.toAbsolutePath());
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            try (Stream<Path> directories = Files.walk(root)) {
+                for (Path directory : directories.filter(Files::isDirectory).collect(Collectors.toList())) {
+                    register(directory);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to watch data directory {}, hot reload is disabled", root.toAbsolutePath(), e);
+            return;
+        }
+
+        watcherThread = new Thread(this::watch, "data-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching {} for new and modified data files", root.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close data directory watcher", e);
+            }
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean relevant = handleEvents(watchService.take());
+
+                // Keep draining until the directory has been quiet for debounceMs
+                WatchKey next;
+                while ((next = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= handleEvents(next);
+                }
+
+                if (relevant) {
+                    csvService.reloadAsync("watcher");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Application is shutting down
+        }
+    }
+
+    private boolean handleEvents(WatchKey key) {
+        boolean relevant = false;
+        Path directory = (Path) key.watchable();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+                continue;
+            }
+
+            Path changed = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    register(changed);
+                } catch (IOException e) {
+                    log.warn("Failed to watch new directory {}", changed, e);
+                }
+                relevant = true;
+            } else if (changed.getFileName().toString().endsWith(".csv")) {
+                relevant = true;
+            }
+        }
+
+        key.reset();
+        return relevant;
+    }
+}
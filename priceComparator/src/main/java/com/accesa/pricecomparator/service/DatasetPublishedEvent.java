@@ -0,0 +1,42 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.data.PriceChanges;
+import com.accesa.pricecomparator.model.PriceChange;
+
+import java.util.List;
+
+/**
+ * Published by {@link CSVService} on the loading thread every time a new dataset
+ * version replaces the current one.
+ */
+public class DatasetPublishedEvent {
+
+    private final DatasetSnapshot previous;
+    private final DatasetSnapshot current;
+    private List<PriceChange> priceChanges;
+
+    public DatasetPublishedEvent(DatasetSnapshot previous, DatasetSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public DatasetSnapshot getPrevious() {
+        return previous;
+    }
+
+    public DatasetSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * Gets the listings that were added or changed price in this version, computed on
+     * first use and shared by every listener
+     */
+    public synchronized List<PriceChange> getPriceChanges() {
+        if (priceChanges == null) {
+            priceChanges = PriceChanges.between(previous, current);
+        }
+        return priceChanges;
+    }
+}
@@ -1,6 +1,11 @@
 package com.accesa.pricecomparator.service;
 
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.data.DiscountColumns;
+import com.accesa.pricecomparator.data.SnapshotListing;
+import com.accesa.pricecomparator.data.TopKRows;
 import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.DiscountSegment;
 import com.accesa.pricecomparator.model.Product;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +21,7 @@ import java.util.stream.Collectors;
 public class DiscountService {
 
     private final CSVService csvService;
+    private final QueryCache queryCache;
 
     /**
      * Gets all available discounts
@@ -25,13 +31,36 @@ public class DiscountService {
         return csvService.getAllDiscounts();
     }
 
+    /**
+     * Lists all available discounts, without copying them
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Discount> listAllDiscounts() {
+        return csvService.readStamped((snapshot, stamp) ->
+                SnapshotListing.filtered(stamp, snapshot.getDiscounts(), null));
+    }
+
     /**
      * Gets discounts for a specific store
      * @param store Store name
      * @return List of discounts for the store
      */
     public List<Discount> getDiscountsByStore(String store) {
-        return csvService.getDiscountsByStore(store);
+        return listDiscountsByStore(store).toList();
+    }
+
+    /**
+     * Lists discounts for a specific store, without copying them
+     * @param store Store name
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Discount> listDiscountsByStore(String store) {
+        return csvService.readStamped((snapshot, stamp) -> {
+            DiscountColumns columns = snapshot.getDiscountColumns();
+            boolean[] storeMatches = columns.matchStore(store);
+            return SnapshotListing.filtered(stamp, snapshot.getDiscounts(),
+                    row -> matches(storeMatches, columns.store(row)));
+        });
     }
 
     /**
@@ -40,9 +69,31 @@ public class DiscountService {
      * @return List of active discounts
      */
     public List<Discount> getActiveDiscounts(LocalDate date) {
-        return csvService.getAllDiscounts().stream()
-                .filter(discount -> discount.isActiveOn(date))
-                .collect(Collectors.toList());
+        return csvService.getSnapshot().getDiscountIntervals().activeOn(date, null);
+    }
+
+    /**
+     * Lists discounts that are active on a specific date, without copying them
+     * @param date Date to check
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Discount> listActiveDiscounts(LocalDate date) {
+        return csvService.readStamped((snapshot, stamp) -> {
+            int[] rows = snapshot.getDiscountIntervals().activeRowsBetween(date, date, null);
+            return SnapshotListing.ofRows(stamp, snapshot.getDiscounts(), rows);
+        });
+    }
+
+    /**
+     * Gets discounts that are active on at least one day of a date range
+     * @param from First day of the range
+     * @param to Last day of the range (inclusive)
+     * @param store Store name (optional)
+     * @return List of discounts overlapping the range
+     */
+    public List<Discount> getActiveDiscountsBetween(LocalDate from, LocalDate to, String store) {
+        String storeFilter = store != null && !store.isEmpty() ? store : null;
+        return csvService.getSnapshot().getDiscountIntervals().activeBetween(from, to, storeFilter);
     }
 
     /**
@@ -51,10 +102,21 @@ public class DiscountService {
      * @return List of new discounts
      */
     public List<Discount> getNewDiscounts(LocalDate since) {
-        return csvService.getAllDiscounts().stream()
-                .filter(discount -> discount.getDiscountDate().isEqual(since) ||
-                        discount.getDiscountDate().isAfter(since))
-                .collect(Collectors.toList());
+        return listNewDiscounts(since).toList();
+    }
+
+    /**
+     * Lists discounts that were newly added since a specific date, without copying them
+     * @param since Date to check from
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Discount> listNewDiscounts(LocalDate since) {
+        return csvService.readStamped((snapshot, stamp) -> {
+            DiscountColumns columns = snapshot.getDiscountColumns();
+            int sinceDay = (int) since.toEpochDay();
+            return SnapshotListing.filtered(stamp, snapshot.getDiscounts(),
+                    row -> columns.discountDate(row) >= sinceDay);
+        });
     }
 
     /**
@@ -63,9 +125,21 @@ public class DiscountService {
      * @return List of discounts for the category
      */
     public List<Discount> getDiscountsByCategory(String category) {
-        return csvService.getAllDiscounts().stream()
-                .filter(discount -> discount.getProductCategory().equalsIgnoreCase(category))
-                .collect(Collectors.toList());
+        return listDiscountsByCategory(category).toList();
+    }
+
+    /**
+     * Lists discounts by product category, without copying them
+     * @param category Category to filter by
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Discount> listDiscountsByCategory(String category) {
+        return csvService.readStamped((snapshot, stamp) -> {
+            DiscountColumns columns = snapshot.getDiscountColumns();
+            boolean[] categoryMatches = columns.matchCategory(category);
+            return SnapshotListing.filtered(stamp, snapshot.getDiscounts(),
+                    row -> matches(categoryMatches, columns.category(row)));
+        });
     }
 
     /**
@@ -81,14 +155,48 @@ public class DiscountService {
 
     /**
      * Gets the best discounts across all stores
+     * @param category Product category to filter by (optional)
+     * @param store Store to filter by (optional)
      * @param limit Number of discounts to return
      * @return List of discounts with highest percentage
      */
-    public List<Discount> getBestDiscounts(int limit) {
-        return csvService.getAllDiscounts().stream()
-                .sorted(Comparator.comparing(Discount::getPercentageDiscount).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+    public List<Discount> getBestDiscounts(String category, String store, int limit) {
+        String categoryFilter = category != null && !category.isBlank() ? category : null;
+        String storeFilter = store != null && !store.isBlank() ? store : null;
+        return queryCache.get("discounts.best",
+                () -> findBestDiscounts(categoryFilter, storeFilter, limit), categoryFilter, storeFilter, limit);
+    }
+
+    private List<Discount> findBestDiscounts(String categoryFilter, String storeFilter, int limit) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        DiscountColumns columns = snapshot.getDiscountColumns();
+
+        int[] rows = snapshot.getBestDiscounts().top(categoryFilter, storeFilter, limit);
+        if (rows == null) {
+            // Not covered by the precomputed ranking, scan the columns instead
+            boolean[] categoryMatches = categoryFilter != null ? columns.matchCategory(categoryFilter) : null;
+            boolean[] storeMatches = storeFilter != null ? columns.matchStore(storeFilter) : null;
+
+            // Negated so the heap keeps the highest percentages
+            TopKRows best = new TopKRows(Math.min(limit, columns.size()));
+            for (int row = 0; row < columns.size(); row++) {
+                if (matches(categoryMatches, columns.category(row)) && matches(storeMatches, columns.store(row))) {
+                    best.offer(-columns.percentage(row), row);
+                }
+            }
+            rows = best.sortedRows();
+        }
+
+        List<Discount> discounts = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            discounts.add(columns.materialize(row));
+        }
+        return discounts;
+    }
+
+    // Null flags mean no filter; ids of missing values (-1) never match a filter
+    private static boolean matches(boolean[] flags, int id) {
+        return flags == null || (id >= 0 && flags[id]);
     }
 
     /**
@@ -97,11 +205,15 @@ public class DiscountService {
      * @return List of products with their discount information
      */
     public List<Product> getProductsWithBestDiscounts(int limit) {
+        return queryCache.get("discounts.best-products", () -> findProductsWithBestDiscounts(limit), limit);
+    }
+
+    private List<Product> findProductsWithBestDiscounts(int limit) {
         // Get all products
         List<Product> allProducts = csvService.getAllProducts();
 
         // Get best discounts
-        List<Discount> bestDiscounts = getBestDiscounts(limit);
+        List<Discount> bestDiscounts = getBestDiscounts(null, null, limit);
 
         // Create map of product ID to discount
         Map<String, Discount> discountMap = bestDiscounts.stream()
@@ -134,10 +246,10 @@ public class DiscountService {
      * @return Optional of the discount if active, empty otherwise
      */
     public Optional<Discount> getActiveDiscountForProduct(String productId, String store, LocalDate date) {
-        return csvService.getAllDiscounts().stream()
-                .filter(discount -> discount.getProductId().equals(productId))
+        // Only the store's discounts running on that date are checked
+        return csvService.getSnapshot().getDiscountIntervals().activeOn(date, store).stream()
+                .filter(discount -> productId.equals(discount.getProductId()))
                 .filter(discount -> discount.getStore().equals(store))
-                .filter(discount -> discount.isActiveOn(date))
                 .findFirst();
     }
 
@@ -148,33 +260,35 @@ public class DiscountService {
      * @return Map of date to discount percentage
      */
     public Map<LocalDate, Integer> getDiscountHistory(String productId, String store) {
-        List<Discount> discounts;
-
-        if (store != null && !store.isEmpty()) {
-            discounts = csvService.getDiscountsByStore(store).stream()
-                    .filter(discount -> discount.getProductId().equals(productId))
-                    .collect(Collectors.toList());
-        } else {
-            discounts = csvService.getAllDiscounts().stream()
-                    .filter(discount -> discount.getProductId().equals(productId))
-                    .collect(Collectors.toList());
-        }
-
-        // Create map with from date -> percentage
+        // Create map with date -> percentage, later stores overwrite earlier ones on shared days
         Map<LocalDate, Integer> discountHistory = new TreeMap<>();
-        for (Discount discount : discounts) {
-            LocalDate from = discount.getFromDate();
-            LocalDate to = discount.getToDate();
-            Integer percentage = discount.getPercentageDiscount();
-
-            // Add entry for each day in the discount period
-            LocalDate currentDate = from;
-            while (!currentDate.isAfter(to)) {
-                discountHistory.put(currentDate, percentage);
+        for (DiscountSegment segment : getDiscountHistorySegments(productId, store)) {
+            LocalDate currentDate = segment.getFromDate();
+            while (!currentDate.isAfter(segment.getToDate())) {
+                discountHistory.put(currentDate, segment.getPercentage());
                 currentDate = currentDate.plusDays(1);
             }
         }
 
         return discountHistory;
     }
+
+    /**
+     * Gets discount history for a specific product as merged, non-overlapping segments per
+     * store. Where discounts of one store overlap, the segment carries the one applied to
+     * prices (the highest).
+     * @param productId Product ID
+     * @param store Store name (optional)
+     * @return List of segments ordered by store, then start date
+     */
+    public List<DiscountSegment> getDiscountHistorySegments(String productId, String store) {
+        List<DiscountSegment> segments = csvService.getSnapshot().getDiscountTimelines().getHistory(productId);
+
+        if (store != null && !store.isEmpty()) {
+            return segments.stream()
+                    .filter(segment -> segment.getStore().equalsIgnoreCase(store))
+                    .collect(Collectors.toList());
+        }
+        return segments;
+    }
 }
\ No newline at end of file
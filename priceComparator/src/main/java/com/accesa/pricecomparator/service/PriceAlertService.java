@@ -1,17 +1,44 @@
 package com.accesa.pricecomparator.service;
 
+import com.accesa.pricecomparator.data.AlertJournal;
+import com.accesa.pricecomparator.data.ProductIndex;
+import com.accesa.pricecomparator.data.ProductIndex.PriceSeries;
+import com.accesa.pricecomparator.model.AlertImportResult;
+import com.accesa.pricecomparator.model.AlertImportRow;
+import com.accesa.pricecomparator.model.AlertStatus;
+import com.accesa.pricecomparator.model.CursorPage;
 import com.accesa.pricecomparator.model.PriceAlert;
+import com.accesa.pricecomparator.model.PriceChange;
 import com.accesa.pricecomparator.model.Product;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -19,52 +46,278 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PriceAlertService {
 
+    // Owner of alerts created without a user ID
+    public static final String ANONYMOUS_USER = "anonymous";
+
     private final CSVService csvService;
+    private final AlertNotificationService notificationService;
+    private final AlertJournal journal;
+
+    // Period of the full background check in ms (0 = only after each data reload)
+    @Value("${app.alerts.evaluation.interval-ms:0}")
+    private long evaluationIntervalMs;
+
+    // Rows accepted by one bulk import; the rest of the body is not read
+    @Value("${app.alerts.import.max-rows:1000000}")
+    private int importMaxRows = 1_000_000;
 
-    // In-memory storage for alerts (in a real app, this would be in a database)
+    // Alerts stored per journal group commit during a bulk import
+    private static final int IMPORT_CHUNK = 4096;
+
+    // Live alerts; every change is journaled so they survive a restart
     private final Map<Long, PriceAlert> alerts = new ConcurrentHashMap<>();
     private final AtomicLong idCounter = new AtomicLong(1);
 
+    // Creates publish an alert and queue its record under the read lock, deletes take the
+    // write lock, so a delete is never journaled ahead of the creation it undoes
+    private final ReadWriteLock journalOrder = new ReentrantReadWriteLock();
+
+    // Active alerts by product, store and target price, so new prices only visit the alerts they trigger
+    private final AlertIndex alertIndex = new AlertIndex();
+
+    // All alerts, and alerts by user and by product, split into active and triggered and
+    // sorted by id, so a listing page reads only the alerts it returns
+    private final AlertGroups.Partition allAlerts = new AlertGroups.Partition();
+    private final AlertGroups alertsByUser = new AlertGroups();
+    private final AlertGroups alertsByProduct = new AlertGroups();
+
+    // Alerts are evaluated here, one pass at a time, off the reload and request threads
+    private final ScheduledExecutorService evaluator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Restores the journaled alerts, then starts journaling and the scheduled check
+     */
+    @PostConstruct
+    public void start() {
+        long start = System.currentTimeMillis();
+        AlertJournal.Recovery recovery = journal.recover();
+        alerts.putAll(recovery.getAlerts());
+        idCounter.set(recovery.getNextId());
+        alerts.values().stream().filter(PriceAlert::isActive).forEach(alertIndex::add);
+        alerts.values().forEach(this::group);
+        if (!alerts.isEmpty()) {
+            log.info("Restored {} price alerts in {} ms", alerts.size(), System.currentTimeMillis() - start);
+        }
+        journal.open(alerts::values, idCounter::get);
+
+        if (evaluationIntervalMs > 0) {
+            evaluator.scheduleWithFixedDelay(() -> runEvaluation("scheduled check", this::checkAllAlerts),
+                    evaluationIntervalMs, evaluationIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evaluator.shutdownNow();
+    }
+
     /**
      * Create a new price alert
      * @param productId Product ID to monitor
      * @param store Store to monitor (optional, can be null to check all stores)
      * @param targetPrice Target price to trigger alert
-     * @param userId User ID the alert belongs to
+     * @param userId User ID the alert belongs to (null for {@link #ANONYMOUS_USER})
      * @return Created alert
      */
     public PriceAlert createAlert(String productId, String store, Double targetPrice, String userId) {
         // Find product to get name
-        String productName = csvService.getAllProducts().stream()
-                .filter(p -> p.getProductId().equals(productId))
-                .findFirst()
-                .map(Product::getProductName)
-                .orElse("Unknown Product");
+        Product listed = csvService.getSnapshot().getProductIndex().findAny(productId);
+        String productName = listed != null ? listed.getProductName() : "Unknown Product";
 
-        PriceAlert alert = new PriceAlert(productId, productName, store, targetPrice, userId);
+        PriceAlert alert = new PriceAlert(productId, productName, store, targetPrice,
+                userId != null ? userId : ANONYMOUS_USER);
         Long id = idCounter.getAndIncrement();
         alert.setId(id);
 
-        alerts.put(id, alert);
+        CompletableFuture<Void> journaled;
+        journalOrder.readLock().lock();
+        try {
+            // Grouped before it can be deleted, so a delete always finds it in its groups
+            group(alert);
+            // Live before it is queued, so a snapshot covering the record also has the alert
+            alerts.put(id, alert);
+            // Queued before the alert can trigger, so the journal has its creation first
+            journaled = journal.appendCreate(alert);
+        } finally {
+            journalOrder.readLock().unlock();
+        }
+
+        // Index before the first check, so prices published meanwhile still reach the alert
+        alertIndex.add(alert);
+
+        // The alert is only acknowledged once it is on disk
+        try {
+            journaled.join();
+        } catch (CompletionException e) {
+            alerts.remove(id);
+            alertIndex.remove(alert);
+            ungroup(alert);
+            throw new IllegalStateException("Could not store price alert " + id, e.getCause());
+        }
         log.info("Created price alert: {}", alert);
 
         // Check if alert should be triggered immediately
-        checkAlert(alert);
+        if (checkAlert(alert)) {
+            alertIndex.remove(alert);
+        }
 
         return alert;
     }
 
     /**
-     * Get all alerts
+     * Creates alerts in bulk. Rows are validated against the product index and stored a
+     * chunk at a time, each chunk in one journal flush; then every imported product is
+     * checked once against the current prices, instead of one check per alert.
+     * @param rows Rows in body order
+     * @return One result per row, in body order
+     */
+    public List<AlertImportResult> importAlerts(Iterator<AlertImportRow> rows) {
+        long start = System.currentTimeMillis();
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+        Map<String, String> productNames = new HashMap<>();
+        List<AlertImportResult> results = new ArrayList<>();
+        List<PriceAlert> imported = new ArrayList<>();
+        List<AlertImportResult> importedResults = new ArrayList<>();
+        List<PriceAlert> chunk = new ArrayList<>(IMPORT_CHUNK);
+        List<AlertImportResult> chunkResults = new ArrayList<>(IMPORT_CHUNK);
+
+        int rowCount = 0;
+        while (rows.hasNext()) {
+            AlertImportRow row = rows.next();
+            if (++rowCount > importMaxRows) {
+                results.add(AlertImportResult.rejected(row.getLine(),
+                        "Imports are limited to " + importMaxRows + " rows; this row and the rest were not read"));
+                break;
+            }
+
+            String error = validate(row);
+            String productName = null;
+            if (error == null) {
+                productName = productNames.computeIfAbsent(row.getProductId(), productId -> {
+                    Product listed = index.findAny(productId);
+                    return listed != null ? listed.getProductName() : null;
+                });
+                if (productName == null) {
+                    error = "Unknown product " + row.getProductId();
+                }
+            }
+            if (error != null) {
+                results.add(AlertImportResult.rejected(row.getLine(), error));
+                continue;
+            }
+
+            String userId = row.getUserId() != null ? row.getUserId() : ANONYMOUS_USER;
+            PriceAlert alert = new PriceAlert(row.getProductId(), productName, row.getStore(), row.getTargetPrice(), userId);
+            alert.setId(idCounter.getAndIncrement());
+            AlertImportResult result = new AlertImportResult(row.getLine(), AlertImportResult.Status.CREATED, alert.getId(), null);
+            results.add(result);
+            chunk.add(alert);
+            chunkResults.add(result);
+            if (chunk.size() == IMPORT_CHUNK) {
+                storeChunk(chunk, chunkResults, imported, importedResults);
+            }
+        }
+        storeChunk(chunk, chunkResults, imported, importedResults);
+
+        // One pass over the imported products triggers whatever the current prices already reach
+        Set<String> productIds = new LinkedHashSet<>();
+        imported.forEach(alert -> productIds.add(alert.getProductId()));
+        checkProducts(productIds, new ArrayList<>());
+        for (int i = 0; i < imported.size(); i++) {
+            if (imported.get(i).getStatus() == AlertStatus.TRIGGERED) {
+                importedResults.get(i).setStatus(AlertImportResult.Status.TRIGGERED);
+            }
+        }
+
+        log.info("Imported {} of {} price alerts in {} ms", imported.size(), rowCount,
+                System.currentTimeMillis() - start);
+        return results;
+    }
+
+    private static String validate(AlertImportRow row) {
+        if (row.getError() != null) {
+            return row.getError();
+        }
+        if (row.getProductId() == null || row.getProductId().isEmpty()) {
+            return "Missing productId";
+        }
+        if (row.getTargetPrice() == null || !(row.getTargetPrice() >= 0) || row.getTargetPrice().isInfinite()) {
+            return "targetPrice must be a number of at least 0";
+        }
+        return null;
+    }
+
+    // Stores a chunk of new alerts, journaled in one write and flush
+    private void storeChunk(List<PriceAlert> chunk, List<AlertImportResult> chunkResults, List<PriceAlert> imported,
+                            List<AlertImportResult> importedResults) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // One creation time per chunk: the alerts are created together
+        LocalDateTime createdAt = LocalDateTime.now();
+        CompletableFuture<Void> journaled;
+        journalOrder.readLock().lock();
+        try {
+            for (PriceAlert alert : chunk) {
+                alert.setCreatedAt(createdAt);
+                group(alert);
+                alerts.put(alert.getId(), alert);
+            }
+            // Queued before the alerts can trigger, so the journal has their creation first
+            journaled = journal.appendCreates(chunk);
+        } finally {
+            journalOrder.readLock().unlock();
+        }
+        // Indexed in target order, so consecutive inserts land next to each other
+        List<PriceAlert> byTarget = new ArrayList<>(chunk);
+        byTarget.sort(Comparator.comparing(PriceAlert::getProductId).thenComparing(PriceAlert::getTargetPrice));
+        byTarget.forEach(alertIndex::add);
+
+        try {
+            journaled.join();
+            imported.addAll(chunk);
+            importedResults.addAll(chunkResults);
+        } catch (CompletionException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                PriceAlert alert = chunk.get(i);
+                alerts.remove(alert.getId());
+                alertIndex.remove(alert);
+                ungroup(alert);
+                AlertImportResult result = chunkResults.get(i);
+                result.setStatus(AlertImportResult.Status.REJECTED);
+                result.setAlertId(null);
+                result.setError("Could not store the alert");
+            }
+        }
+        chunk.clear();
+        chunkResults.clear();
+    }
+
+    /**
+     * Get a page of alerts in id order. Reads the user's or the product's alerts only, so
+     * the cost follows the page size, not the number of alerts.
      * @param userId User ID (optional)
+     * @param productId Product ID (optional)
      * @param activeOnly Whether to return only active alerts
-     * @return List of alerts
+     * @param afterId Cursor: id of the last alert of the previous page (null for the first page)
+     * @param limit Page size
+     * @return Alerts and the cursor of the next page, if any
      */
-    public List<PriceAlert> getAlerts(String userId, boolean activeOnly) {
-        return alerts.values().stream()
-                .filter(alert -> userId == null || alert.getUserId().equals(userId))
-                .filter(alert -> !activeOnly || alert.isActive())
-                .collect(Collectors.toList());
+    public CursorPage<PriceAlert> getAlerts(String userId, String productId, boolean activeOnly, Long afterId,
+                                            int limit) {
+        AlertGroups.Partition source = userId != null ? alertsByUser.get(userId)
+                : productId != null ? alertsByProduct.get(productId)
+                : allAlerts;
+        List<PriceAlert> page = source.page(afterId, limit, activeOnly, userId != null ? productId : null);
+        if (page.size() <= limit) {
+            return new CursorPage<>(page, null);
+        }
+        page = page.subList(0, limit);
+        return new CursorPage<>(page, String.valueOf(page.get(limit - 1).getId()));
     }
 
     /**
@@ -82,25 +335,160 @@ public class PriceAlertService {
      * @return true if deleted, false if not found
      */
     public boolean deleteAlert(Long id) {
-        return alerts.remove(id) != null;
+        CompletableFuture<Void> journaled;
+        journalOrder.writeLock().lock();
+        try {
+            PriceAlert removed = alerts.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            // A check still holding the alert can no longer trigger it
+            removed.markDeleted();
+            alertIndex.remove(removed);
+            ungroup(removed);
+            journaled = journal.appendDelete(id);
+        } finally {
+            journalOrder.writeLock().unlock();
+        }
+        journaled.join();
+        return true;
     }
 
     /**
-     * Check if any alerts should be triggered based on current prices
+     * Check if any alerts should be triggered based on current prices. Only products with
+     * active alerts are visited; the cheapest listing per store finds its alerts with a
+     * range query on target price.
      * @return List of triggered alerts
      */
     public List<PriceAlert> checkAllAlerts() {
         List<PriceAlert> triggeredAlerts = new ArrayList<>();
+        checkProducts(alertIndex.productIds(), triggeredAlerts);
+        triggeredAlerts.sort(Comparator.comparing(PriceAlert::getId));
+        return triggeredAlerts;
+    }
 
-        for (PriceAlert alert : alerts.values()) {
-            if (alert.isActive() && checkAlert(alert)) {
-                triggeredAlerts.add(alert);
+    private void checkProducts(Collection<String> productIds, List<PriceAlert> triggeredAlerts) {
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+        for (String productId : productIds) {
+            for (PriceSeries series : index.getSeriesByStore(productId).values()) {
+                // Whatever any listing of the store triggers, its cheapest listing triggers too
+                Product cheapest = series.all().stream()
+                        .filter(product -> priceOf(product) != null)
+                        .min(Comparator.comparingDouble(PriceAlertService::priceOf))
+                        .orElse(null);
+                if (cheapest != null) {
+                    triggerAll(alertIndex.takeTriggered(productId, cheapest.getStore(), priceOf(cheapest)),
+                            cheapest.getProductName(), cheapest.getStore(), priceOf(cheapest), triggeredAlerts);
+                }
             }
         }
+    }
 
+    /**
+     * Queues the prices of a newly published dataset for the background evaluator, which
+     * pushes them through the alert index. Only listings that are new or got cheaper can
+     * trigger an alert, so the work follows the changed prices and the alerts they trigger.
+     * @param event Published dataset version
+     */
+    @EventListener
+    public void onDatasetPublished(DatasetPublishedEvent event) {
+        if (alertIndex.isEmpty()) {
+            return;
+        }
+        evaluator.execute(() -> runEvaluation("dataset version " + event.getCurrent().getVersion(),
+                () -> evaluatePriceChanges(event)));
+    }
+
+    private List<PriceAlert> evaluatePriceChanges(DatasetPublishedEvent event) {
+        List<PriceAlert> triggeredAlerts = new ArrayList<>();
+        for (PriceChange change : event.getPriceChanges()) {
+            if (change.getPrice() == null
+                    || (change.getPreviousPrice() != null && change.getPrice() >= change.getPreviousPrice())) {
+                continue;
+            }
+            triggerAll(alertIndex.takeTriggered(change.getProductId(), change.getStore(), change.getPrice()),
+                    change.getProductName(), change.getStore(), change.getPrice(), triggeredAlerts);
+        }
         return triggeredAlerts;
     }
 
+    // A failing pass is logged and must not cancel later scheduled passes
+    private void runEvaluation(String reason, Supplier<List<PriceAlert>> evaluation) {
+        try {
+            List<PriceAlert> triggeredAlerts = evaluation.get();
+            if (!triggeredAlerts.isEmpty()) {
+                log.info("Alert evaluation ({}) triggered {} price alerts", reason, triggeredAlerts.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Alert evaluation ({}) failed", reason, e);
+        }
+    }
+
+    private void triggerAll(List<Long> alertIds, String productName, String store, double price,
+                            List<PriceAlert> triggeredAlerts) {
+        for (Long alertId : alertIds) {
+            PriceAlert alert = alerts.get(alertId);
+            if (alert == null) {
+                continue;
+            }
+            // Each alert on its own: the ids are already out of the index, so one failure must not strand the rest
+            try {
+                if (trigger(alert, productName, store, price)) {
+                    triggeredAlerts.add(alert);
+                }
+            } catch (RuntimeException e) {
+                log.error("Triggering price alert {} failed", alertId, e);
+                if (alert.isActive()) {
+                    // Back in the index, so the next check tries it again
+                    alertIndex.add(alert);
+                } else if (alert.getStatus() == AlertStatus.TRIGGERED) {
+                    triggeredAlerts.add(alert);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks an alert as triggered unless something else already triggered or deleted it.
+     * Only the winning caller journals and publishes the trigger, so it is sent once.
+     * @return true if this call triggered it
+     */
+    private boolean trigger(PriceAlert alert, String productName, String store, double price) {
+        if (!alert.trigger(store, price, LocalDateTime.now())) {
+            return false;
+        }
+        log.info("Alert triggered: {} - Product {} is now {} at {}", alert.getId(), productName, price, store);
+        // A no-op if a delete already ungrouped the alert
+        allAlerts.deactivate(alert);
+        alertsByUser.deactivate(alert.getUserId(), alert);
+        alertsByProduct.deactivate(alert.getProductId(), alert);
+        // Not waited for: a trigger lost in a crash is found again by the next check
+        journal.appendTrigger(alert);
+        // The trigger already happened; a failed notification must not undo or fail it
+        try {
+            notificationService.publish(alert);
+        } catch (RuntimeException e) {
+            log.error("Could not notify the trigger of alert {}", alert.getId(), e);
+        }
+        return true;
+    }
+
+    private void group(PriceAlert alert) {
+        allAlerts.add(alert);
+        alertsByUser.add(alert.getUserId(), alert);
+        alertsByProduct.add(alert.getProductId(), alert);
+    }
+
+    private void ungroup(PriceAlert alert) {
+        allAlerts.remove(alert);
+        alertsByUser.remove(alert.getUserId(), alert);
+        alertsByProduct.remove(alert.getProductId(), alert);
+    }
+
+    private static Double priceOf(Product product) {
+        return product.getDiscountedPrice() != null ? product.getDiscountedPrice() : product.getPrice();
+    }
+
     /**
      * Check if a specific alert should be triggered
      * @param alert Alert to check
@@ -112,22 +500,24 @@ public class PriceAlertService {
         }
 
         // Get current product prices
-        List<Product> products = csvService.getAllProducts().stream()
-                .filter(p -> p.getProductId().equals(alert.getProductId()))
-                .filter(p -> alert.getStore() == null || p.getStore().equalsIgnoreCase(alert.getStore()))
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+        Collection<PriceSeries> seriesToCheck;
+        if (alert.getStore() == null) {
+            seriesToCheck = index.getSeriesByStore(alert.getProductId()).values();
+        } else {
+            PriceSeries series = index.getSeries(alert.getProductId(), alert.getStore());
+            seriesToCheck = series != null ? List.of(series) : Collections.emptyList();
+        }
+        List<Product> products = seriesToCheck.stream()
+                .flatMap(series -> series.all().stream())
                 .collect(Collectors.toList());
 
         // Check if any product price is below target
         for (Product product : products) {
-            Double currentPrice = product.getDiscountedPrice() != null ?
-                    product.getDiscountedPrice() : product.getPrice();
+            Double currentPrice = priceOf(product);
 
             if (currentPrice <= alert.getTargetPrice()) {
-                alert.setActive(false);
-                alert.setTriggeredAt(LocalDateTime.now());
-                log.info("Alert triggered: {} - Product {} is now {}",
-                        alert.getId(), product.getProductName(), currentPrice);
-                return true;
+                return trigger(alert, product.getProductName(), product.getStore(), currentPrice);
             }
         }
 
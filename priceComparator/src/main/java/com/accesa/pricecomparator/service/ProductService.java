@@ -1,6 +1,16 @@
 package com.accesa.pricecomparator.service;
 
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.data.Leaderboards;
+import com.accesa.pricecomparator.data.ProductColumns;
+import com.accesa.pricecomparator.data.ProductIndex;
+import com.accesa.pricecomparator.data.ProductIndex.PriceSeries;
+import com.accesa.pricecomparator.data.SnapshotListing;
+import com.accesa.pricecomparator.data.TopKRows;
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.EffectivePrice;
 import com.accesa.pricecomparator.model.Product;
+import com.accesa.pricecomparator.util.UnitNormalizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -15,83 +25,209 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final CSVService csvService;
+    private final QueryCache queryCache;
 
     /**
      * Gets products with the highest discount percentage across all stores
+     * @param category Product category to filter by (optional)
+     * @param store Store to filter by (optional)
      * @param limit Number of products to return
      * @return List of products with highest discounts
      */
-    public List<Product> getBestDiscounts(int limit) {
-        return csvService.getAllProducts().stream()
-                .filter(product -> product.getDiscountPercentage() != null && product.getDiscountPercentage() > 0)
-                .sorted(Comparator.comparing(Product::getDiscountPercentage).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+    public List<Product> getBestDiscounts(String category, String store, int limit) {
+        String categoryFilter = category != null && !category.isBlank() ? category : null;
+        String storeFilter = store != null && !store.isBlank() ? store : null;
+        return queryCache.get("products.best-discounts",
+                () -> findBestDiscounts(categoryFilter, storeFilter, limit), categoryFilter, storeFilter, limit);
+    }
+
+    private List<Product> findBestDiscounts(String categoryFilter, String storeFilter, int limit) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        ProductColumns columns = snapshot.getProductColumns();
+
+        int[] rows = snapshot.getBestProductDiscounts().top(categoryFilter, storeFilter, limit);
+        if (rows == null) {
+            // Not covered by the precomputed ranking, scan the columns instead
+            boolean[] categoryMatches = categoryFilter != null ? columns.matchCategory(categoryFilter) : null;
+            boolean[] storeMatches = storeFilter != null ? columns.matchStore(storeFilter) : null;
+
+            // Negated so the heap keeps the highest percentages
+            TopKRows best = new TopKRows(Math.min(limit, columns.size()));
+            for (int row = 0; row < columns.size(); row++) {
+                int percentage = columns.discountPercentage(row);
+                if (percentage > 0 && matches(categoryMatches, columns.category(row))
+                        && matches(storeMatches, columns.store(row))) {
+                    best.offer(-percentage, row);
+                }
+            }
+            rows = best.sortedRows();
+        }
+        return materialize(columns, rows);
     }
 
     /**
-     * Gets products with the best value per unit (price per kg, price per liter)
+     * Gets products with the best value per unit (price per kg, price per liter). Prices
+     * are only ranked against others in the same base unit. Without a unit, the first
+     * product of every base unit comes first, then the second of each, and so on up to
+     * the limit; grouped, the best products of every base unit are listed unit by unit.
      * @param category Product category to filter by
-     * @param limit Number of products to return
+     * @param store Store to filter by (optional)
+     * @param unit Unit to rank in (optional), as a base unit or any unit converting to one ("g" ranks per kg)
+     * @param limit Number of products to return, or per base unit when grouped
+     * @param groupByUnit Whether to list up to the limit for every base unit, in unit name order
      * @return List of products with best value per unit
      */
-    public List<Product> getBestValuePerUnit(String category, int limit) {
-        List<Product> products;
+    public List<Product> getBestValuePerUnit(String category, String store, String unit, int limit,
+                                             boolean groupByUnit) {
+        String categoryFilter = category != null && !category.isBlank() ? category : null;
+        String storeFilter = store != null && !store.isBlank() ? store : null;
+        String unitFilter = UnitNormalizer.baseUnit(unit);
+        return queryCache.get("products.best-value",
+                () -> findBestValuePerUnit(categoryFilter, storeFilter, unitFilter, limit, groupByUnit),
+                categoryFilter, storeFilter, unitFilter, limit, groupByUnit);
+    }
 
-        if (category != null && !category.isBlank()) {
-            products = csvService.getProductsByCategory(category);
-        } else {
-            products = csvService.getAllProducts();
+    private List<Product> findBestValuePerUnit(String categoryFilter, String storeFilter, String unitFilter, int limit,
+                                               boolean groupByUnit) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        ProductColumns columns = snapshot.getProductColumns();
+
+        Collection<String> units = unitFilter != null
+                ? Collections.singletonList(unitFilter) : snapshot.getBestValuePerUnit().keySet();
+        List<int[]> rowsByUnit = new ArrayList<>(units.size());
+        for (String unit : units) {
+            rowsByUnit.add(findBestValueRows(snapshot, unit, categoryFilter, storeFilter, limit));
+        }
+
+        List<Product> products = new ArrayList<>();
+        if (groupByUnit) {
+            rowsByUnit.forEach(rows -> products.addAll(materialize(columns, rows)));
+            return products;
+        }
+        // One rank of every unit at a time, so each unit gets its share of the limit
+        for (int rank = 0; products.size() < limit; rank++) {
+            boolean more = false;
+            for (int[] rows : rowsByUnit) {
+                if (rank < rows.length && products.size() < limit) {
+                    products.add(columns.materialize(rows[rank]));
+                    more = true;
+                }
+            }
+            if (!more) {
+                break;
+            }
+        }
+        return products;
+    }
+
+    private static int[] findBestValueRows(DatasetSnapshot snapshot, String unit,
+                                           String categoryFilter, String storeFilter, int limit) {
+        ProductColumns columns = snapshot.getProductColumns();
+        Leaderboards ranking = snapshot.getBestValuePerUnit().get(unit);
+        if (ranking == null) {
+            // No product is priced in this unit
+            return new int[0];
         }
 
-        return products.stream()
-                .filter(product -> product.getPricePerUnit() != null)
-                .sorted(Comparator.comparing(Product::getPricePerUnit))
-                .limit(limit)
-                .collect(Collectors.toList());
+        int[] rows = ranking.top(categoryFilter, storeFilter, limit);
+        if (rows == null) {
+            // Not covered by the precomputed ranking, scan the columns instead
+            int unitId = columns.unitId(unit);
+            boolean[] categoryMatches = categoryFilter != null ? columns.matchCategory(categoryFilter) : null;
+            boolean[] storeMatches = storeFilter != null ? columns.matchStore(storeFilter) : null;
+
+            TopKRows best = new TopKRows(Math.min(limit, columns.size()));
+            for (int row = 0; row < columns.size(); row++) {
+                double pricePerUnit = columns.pricePerUnit(row);
+                if (!Double.isNaN(pricePerUnit) && columns.baseUnit(row) == unitId
+                        && matches(categoryMatches, columns.category(row))
+                        && matches(storeMatches, columns.store(row))) {
+                    best.offer(pricePerUnit, row);
+                }
+            }
+            rows = best.sortedRows();
+        }
+        return rows;
+    }
+
+    // Null flags mean no filter; ids of missing values (-1) never match a filter
+    private static boolean matches(boolean[] flags, int id) {
+        return flags == null || (id >= 0 && flags[id]);
+    }
+
+    private static List<Product> materialize(ProductColumns columns, int[] rows) {
+        List<Product> products = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            products.add(columns.materialize(row));
+        }
+        return products;
     }
 
     /**
-     * Compares prices for a specific product across different stores
+     * Compares prices for a specific product across different stores. Names are matched
+     * ignoring case and diacritics ("branza telemea" finds "brânză telemea").
      * @param productName Name of the product to compare
      * @param date Date to compare prices
      * @return Map of store to product with prices
      */
     public Map<String, Product> compareProductPrices(String productName, LocalDate date) {
+        return queryCache.get("products.compare", () -> findPricesByStore(productName, date), productName, date);
+    }
+
+    private Map<String, Product> findPricesByStore(String productName, LocalDate date) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        List<Product> products = snapshot.getProducts();
+        int[] rows = snapshot.getProductSearch().findRowsByName(productName);
         Map<String, Product> pricesByStore = new HashMap<>();
 
         if (date == null) {
             // Use the latest date for each store
             Map<String, LocalDate> latestDateByStore = new HashMap<>();
+            snapshot.getProductsByStoreAndDate().forEach((store, byDate) ->
+                    byDate.keySet().forEach(productDate -> latestDateByStore.put(store, productDate)));
 
-            csvService.getAllProducts().forEach(product -> {
-                String store = product.getStore();
-                LocalDate productDate = product.getDate();
-
-                if (!latestDateByStore.containsKey(store) ||
-                        productDate.isAfter(latestDateByStore.get(store))) {
-                    latestDateByStore.put(store, productDate);
+            // For each store, get the first product with the given name on the latest date
+            for (int row : rows) {
+                Product product = products.get(row);
+                if (product.getDate().equals(latestDateByStore.get(product.getStore()))) {
+                    pricesByStore.putIfAbsent(product.getStore(), product);
                 }
-            });
-
-            // For each store, get the product with the given name on the latest date
-            latestDateByStore.forEach((store, latestDate) -> {
-                csvService.getProductsByStoreAndDate(store, latestDate).stream()
-                        .filter(product -> product.getProductName().equalsIgnoreCase(productName))
-                        .findFirst()
-                        .ifPresent(product -> pricesByStore.put(store, product));
-            });
+            }
         } else {
             // Use the specified date
-            csvService.getAllProducts().stream()
-                    .filter(product -> product.getProductName().equalsIgnoreCase(productName) &&
-                            product.getDate().equals(date))
-                    .forEach(product -> pricesByStore.put(product.getStore(), product));
+            for (int row : rows) {
+                Product product = products.get(row);
+                if (product.getDate().equals(date)) {
+                    pricesByStore.put(product.getStore(), product);
+                }
+            }
         }
 
         return pricesByStore;
     }
 
+    /**
+     * Searches products by name, brand and category, ignoring case and diacritics, with
+     * prefix and approximate word matching
+     * @param query Search text
+     * @param limit Number of products to return
+     * @return Latest listing in every store of each matching product, best match first
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        return queryCache.get("products.search", () -> findProducts(query, limit), query, limit);
+    }
+
+    private List<Product> findProducts(String query, int limit) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        List<Product> results = new ArrayList<>();
+
+        for (String productId : snapshot.getProductSearch().search(query, limit)) {
+            snapshot.getProductIndex().getSeriesByStore(productId).values()
+                    .forEach(series -> results.add(series.latest()));
+        }
+        return results;
+    }
+
     /**
      * Builds a price history for a product
      * @param productId Product ID
@@ -99,28 +235,68 @@ public class ProductService {
      * @return Map of date to price
      */
     public Map<LocalDate, Double> getPriceHistory(String productId, String store) {
-        List<Product> productsToAnalyze;
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
+        Collection<PriceSeries> seriesToAnalyze;
 
         if (store != null && !store.isBlank()) {
-            productsToAnalyze = csvService.getProductsByStore(store);
+            PriceSeries series = index.getSeries(productId, store);
+            seriesToAnalyze = series != null ? List.of(series) : Collections.emptyList();
         } else {
-            productsToAnalyze = csvService.getAllProducts();
+            seriesToAnalyze = index.getSeriesByStore(productId).values();
         }
 
         Map<LocalDate, Double> priceHistory = new TreeMap<>(); // TreeMap for chronological order
 
-        productsToAnalyze.stream()
-                .filter(product -> product.getProductId().equals(productId))
-                .forEach(product -> {
-                    // Use discounted price if available, otherwise regular price
-                    Double price = product.getDiscountedPrice() != null ?
-                            product.getDiscountedPrice() : product.getPrice();
-                    priceHistory.put(product.getDate(), price);
-                });
+        seriesToAnalyze.forEach(series -> series.all().forEach(product -> {
+            // Use discounted price if available, otherwise regular price
+            Double price = product.getDiscountedPrice() != null ?
+                    product.getDiscountedPrice() : product.getPrice();
+            priceHistory.put(product.getDate(), price);
+        }));
 
         return priceHistory;
     }
 
+    /**
+     * Computes the price of a product on any day, not only on product file dates: the
+     * listing in effect that day with the highest discount running that day
+     * @param productId Product ID
+     * @param store Store name (optional, all stores if null)
+     * @param date Day to price
+     * @return Effective price per store, in store name order
+     */
+    public List<EffectivePrice> getEffectivePrices(String productId, String store, LocalDate date) {
+        DatasetSnapshot snapshot = csvService.getSnapshot();
+        Collection<PriceSeries> seriesToPrice;
+
+        if (store != null && !store.isBlank()) {
+            PriceSeries series = snapshot.getProductIndex().getSeries(productId, store);
+            seriesToPrice = series != null ? List.of(series) : Collections.emptyList();
+        } else {
+            seriesToPrice = snapshot.getProductIndex().getSeriesByStore(productId).values();
+        }
+
+        List<EffectivePrice> prices = new ArrayList<>();
+        for (PriceSeries series : seriesToPrice) {
+            Product listing = series.asOf(date);
+            if (listing == null) {
+                continue;
+            }
+
+            Discount discount = snapshot.getDiscountTimelines().bestOn(listing.getStore(), productId, date);
+            Integer percentage = discount != null ? discount.getPercentageDiscount() : null;
+            double effectivePrice = percentage != null ?
+                    listing.getPrice() * (1 - (percentage / 100.0)) : listing.getPrice();
+
+            prices.add(new EffectivePrice(productId, listing.getProductName(), listing.getStore(), date,
+                    listing.getDate(), listing.getPrice(), listing.getCurrency(), percentage,
+                    discount != null ? discount.getFromDate() : null,
+                    discount != null ? discount.getToDate() : null,
+                    effectivePrice));
+        }
+        return prices;
+    }
+
     /**
      * Builds a shopping basket with the lowest price
      * @param productIds List of product IDs to include in the basket
@@ -128,30 +304,26 @@ public class ProductService {
      * @return Map of store to total basket price
      */
     public Map<String, Double> optimizeShoppingBasket(List<String> productIds, LocalDate date) {
+        return queryCache.get("products.optimize-basket", () -> priceBasketByStore(productIds, date), productIds, date);
+    }
+
+    private Map<String, Double> priceBasketByStore(List<String> productIds, LocalDate date) {
+        ProductIndex index = csvService.getSnapshot().getProductIndex();
         Map<String, Map<String, Product>> productsByStore = new HashMap<>();
         Set<String> stores = new HashSet<>();
 
-        // Collect all products across stores
+        // Look up each product's listing per store (one index lookup per basket item)
         for (String productId : productIds) {
             Map<String, Product> storeProducts = new HashMap<>();
 
-            csvService.getAllProducts().stream()
-                    .filter(product -> product.getProductId().equals(productId))
-                    .filter(product -> date == null || product.getDate().equals(date))
-                    .forEach(product -> {
-                        String store = product.getStore();
-                        stores.add(store);
-
-                        // Keep only the latest product if date is null
-                        if (date == null) {
-                            if (!storeProducts.containsKey(store) ||
-                                    product.getDate().isAfter(storeProducts.get(store).getDate())) {
-                                storeProducts.put(store, product);
-                            }
-                        } else {
-                            storeProducts.put(store, product);
-                        }
-                    });
+            index.getSeriesByStore(productId).values().forEach(series -> {
+                // Keep only the latest product if date is null
+                Product product = date == null ? series.latest() : series.onDate(date);
+                if (product != null) {
+                    stores.add(product.getStore());
+                    storeProducts.put(product.getStore(), product);
+                }
+            });
 
             productsByStore.put(productId, storeProducts);
         }
@@ -189,9 +361,20 @@ public class ProductService {
      * @return List of products with new discounts
      */
     public List<Product> getNewDiscounts(LocalDate since) {
-        return csvService.getAllProducts().stream()
-                .filter(product -> product.getDiscountPercentage() != null && product.getDiscountPercentage() > 0)
-                .filter(product -> product.getDate().isAfter(since) || product.getDate().isEqual(since))
-                .collect(Collectors.toList());
+        return listNewDiscounts(since).toList();
+    }
+
+    /**
+     * Lists discounted products dated on or after a specific date, without copying them
+     * @param since Date to check for new discounts
+     * @return Listing in snapshot order
+     */
+    public SnapshotListing<Product> listNewDiscounts(LocalDate since) {
+        return csvService.readStamped((snapshot, stamp) -> {
+            ProductColumns columns = snapshot.getProductColumns();
+            int sinceDay = (int) since.toEpochDay();
+            return SnapshotListing.filtered(stamp, snapshot.getProducts(),
+                    row -> columns.discountPercentage(row) > 0 && columns.date(row) >= sinceDay);
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.data.TinyLfuCache;
+import com.accesa.pricecomparator.model.QueryCacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Results of read-only service queries, keyed by query name, arguments and dataset
+ * version. A result only depends on those, so it stays valid until the next reload,
+ * which empties the cache. Memory is bounded by weight: a result weighs one plus the
+ * number of rows or entries it holds, and W-TinyLFU picks what to keep.
+ *
+ * Two threads missing on the same key both compute it; the second result replaces the first.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCache {
+
+    private final CSVService csvService;
+
+    @Value("${app.query-cache.enabled:true}")
+    private boolean enabled;
+
+    // Total weight kept, roughly the number of result rows (products, discounts, stores...)
+    @Value("${app.query-cache.max-weight:200000}")
+    private long maxWeight;
+
+    private TinyLfuCache<Key, Object> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void createCache() {
+        cache = new TinyLfuCache<>(Math.max(1, maxWeight));
+    }
+
+    /**
+     * Gets a cached result, computing and caching it on a miss
+     * @param query Name of the query, unique per service method
+     * @param compute Computes the result from the current dataset
+     * @param args Arguments the result depends on, already normalized; lists are copied
+     * @return Result; lists and maps are read-only since they may be shared
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String query, Supplier<T> compute, Object... args) {
+        if (!enabled) {
+            return compute.get();
+        }
+
+        long version = csvService.getDatasetVersion();
+        Key key = new Key(query, version, args);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return (T) cached;
+        }
+
+        misses.increment();
+        T result = readOnly(compute.get());
+        // Skip results that may come from a newer dataset than the key says
+        if (result != null && csvService.getDatasetVersion() == version) {
+            cache.put(key, result, weigh(result));
+        }
+        return result;
+    }
+
+    /**
+     * Drops every result once a new dataset version is published; their keys could no
+     * longer be asked for anyway
+     * @param event Published dataset version
+     */
+    @EventListener
+    public void onDatasetPublished(DatasetPublishedEvent event) {
+        cache.clear();
+        invalidations.increment();
+    }
+
+    public QueryCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return new QueryCacheStats(enabled, hitCount, missCount, lookups > 0 ? (double) hitCount / lookups : 0,
+                cache.evictions(), invalidations.sum(), cache.size(), cache.weight(), cache.maxWeight(),
+                csvService.getDatasetVersion());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T readOnly(T result) {
+        if (result instanceof List) {
+            return (T) Collections.unmodifiableList((List<?>) result);
+        }
+        if (result instanceof Map) {
+            return (T) Collections.unmodifiableMap((Map<?, ?>) result);
+        }
+        return result;
+    }
+
+    private static long weigh(Object result) {
+        if (result instanceof Collection) {
+            return 1 + ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return 1 + ((Map<?, ?>) result).size();
+        }
+        return 1;
+    }
+
+    private static final class Key {
+        private final String query;
+        private final long version;
+        private final Object[] args;
+        private final int hash;
+
+        Key(String query, long version, Object[] args) {
+            this.query = query;
+            this.version = version;
+            this.args = args.clone();
+            for (int i = 0; i < this.args.length; i++) {
+                // Copied so a caller changing its list later cannot change the key
+                if (this.args[i] instanceof List) {
+                    this.args[i] = new ArrayList<>((List<?>) this.args[i]);
+                }
+            }
+            this.hash = 31 * (31 * query.hashCode() + Long.hashCode(version)) + Arrays.hashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && version == other.version && query.equals(other.query)
+                    && Arrays.equals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.accesa.pricecomparator.util;
+
+import com.accesa.pricecomparator.model.AlertImportRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the body of a bulk alert import lazily, one line at a time, so an import of any
+ * size is never held in memory as text. Lines that cannot be read become rows carrying
+ * their error, and the import goes on with the next line.
+ */
+public final class AlertImportReader {
+
+    private AlertImportReader() {
+    }
+
+    /**
+     * Reads one JSON object per line: {"productId", "store", "targetPrice", "userId"}
+     */
+    public static Iterator<AlertImportRow> ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+        ObjectReader rowReader = objectMapper.readerFor(AlertImportRow.class);
+        return new Iterator<AlertImportRow>() {
+            private int lineNumber;
+            private String line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        line = reader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+                        lineNumber++;
+                        if (line.trim().isEmpty()) {
+                            line = null;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public AlertImportRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String json = line;
+                line = null;
+                try {
+                    AlertImportRow row = rowReader.readValue(json);
+                    row.setLine(lineNumber);
+                    row.setError(null);
+                    return row;
+                } catch (JsonProcessingException e) {
+                    return AlertImportRow.malformed(lineNumber, "Malformed JSON on line " + lineNumber);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads ';' separated lines under a product_id;store;target_price;user_id header
+     */
+    public static Iterator<AlertImportRow> csv(BufferedReader reader) {
+        return StreamingCSVParser.alertRows(reader);
+    }
+}
@@ -4,11 +4,14 @@ import com.accesa.pricecomparator.model.Discount;
 import com.accesa.pricecomparator.model.Product;
 import com.opencsv.bean.CsvToBeanBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,14 +31,31 @@ public class CSVHelper {
     private static final String DISCOUNT_FILENAME_PATTERN = "([a-zA-Z]+)_discounts_(\\d{4}-\\d{2}-\\d{2})\\.csv";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // Compiled once and shared by every parsing thread
+    private static final Pattern PRODUCT_FILENAME = Pattern.compile(PRODUCT_FILENAME_PATTERN);
+    private static final Pattern DISCOUNT_FILENAME = Pattern.compile(DISCOUNT_FILENAME_PATTERN);
+    private static final Pattern PRODUCT_FILE_PATH = Pattern.compile(".*" + PRODUCT_FILENAME_PATTERN);
+    private static final Pattern DISCOUNT_FILE_PATH = Pattern.compile(".*" + DISCOUNT_FILENAME_PATTERN);
+
+    private static final String OPENCSV_PARSER = "opencsv";
+
+    // "streaming" (default) uses StreamingCSVParser, "opencsv" keeps the reflective CsvToBean binding
+    @Value("${app.data.parser:streaming}")
+    private String parser = "streaming";
+
+    /**
+     * Parses a product file, taking the store and date from its name
+     * @param filePath Path of a "<store>_<date>.csv" file
+     * @return Products in file order
+     * @throws IllegalStateException if the file cannot be read or a row is malformed
+     */
     public List<Product> parseProductCSV(String filePath) {
         try {
             // Extract store name and date from filename
             Path path = Paths.get(filePath);
             String fileName = path.getFileName().toString();
 
-            Pattern pattern = Pattern.compile(PRODUCT_FILENAME_PATTERN);
-            Matcher matcher = pattern.matcher(fileName);
+            Matcher matcher = PRODUCT_FILENAME.matcher(fileName);
 
             if (!matcher.matches()) {
                 log.error("Invalid product file name format: {}", fileName);
@@ -46,12 +66,9 @@ public class CSVHelper {
             LocalDate fileDate = LocalDate.parse(matcher.group(2), DATE_FORMATTER);
 
             // Parse CSV
-            Reader reader = new FileReader(filePath);
-            List<Product> products = new CsvToBeanBuilder<Product>(reader)
-                    .withType(Product.class)
-                    .withSeparator(';')
-                    .build()
-                    .parse();
+            List<Product> products = OPENCSV_PARSER.equalsIgnoreCase(parser)
+                    ? parseWithOpenCsv(filePath, Product.class)
+                    : StreamingCSVParser.parseProducts(path);
 
             // Set store and date for each product
             products.forEach(product -> {
@@ -59,23 +76,27 @@ public class CSVHelper {
                 product.setDate(fileDate);
             });
 
-            reader.close();
             return products;
 
         } catch (Exception e) {
-            log.error("Failed to parse CSV file: {}", filePath, e);
-            return Collections.emptyList();
+            // An empty list would read as a file with no rows and wipe its partition
+            throw new IllegalStateException("Failed to parse CSV file: " + filePath, e);
         }
     }
 
+    /**
+     * Parses a discount file, taking the store and date from its name
+     * @param filePath Path of a "<store>_discounts_<date>.csv" file
+     * @return Discounts in file order
+     * @throws IllegalStateException if the file cannot be read or a row is malformed
+     */
     public List<Discount> parseDiscountCSV(String filePath) {
         try {
             // Extract store name and date from filename
             Path path = Paths.get(filePath);
             String fileName = path.getFileName().toString();
 
-            Pattern pattern = Pattern.compile(DISCOUNT_FILENAME_PATTERN);
-            Matcher matcher = pattern.matcher(fileName);
+            Matcher matcher = DISCOUNT_FILENAME.matcher(fileName);
 
             if (!matcher.matches()) {
                 log.error("Invalid discount file name format: {}", fileName);
@@ -86,12 +107,9 @@ public class CSVHelper {
             LocalDate fileDate = LocalDate.parse(matcher.group(2), DATE_FORMATTER);
 
             // Parse CSV
-            Reader reader = new FileReader(filePath);
-            List<Discount> discounts = new CsvToBeanBuilder<Discount>(reader)
-                    .withType(Discount.class)
-                    .withSeparator(';')
-                    .build()
-                    .parse();
+            List<Discount> discounts = OPENCSV_PARSER.equalsIgnoreCase(parser)
+                    ? parseWithOpenCsv(filePath, Discount.class)
+                    : StreamingCSVParser.parseDiscounts(path);
 
             // Set store and date for each discount
             discounts.forEach(discount -> {
@@ -99,13 +117,52 @@ public class CSVHelper {
                 discount.setDiscountDate(fileDate);
             });
 
-            reader.close();
             return discounts;
 
         } catch (Exception e) {
-            log.error("Failed to parse CSV file: {}", filePath, e);
-            return Collections.emptyList();
+            // An empty list would read as a file with no rows and wipe its partition
+            throw new IllegalStateException("Failed to parse CSV file: " + filePath, e);
+        }
+    }
+
+    private <T> List<T> parseWithOpenCsv(String filePath, Class<T> type) throws IOException {
+        try (Reader reader = new BufferedReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
+            // Skip a UTF-8 byte order mark, which would otherwise become part of the first column name
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            return new CsvToBeanBuilder<T>(reader)
+                    .withType(type)
+                    .withSeparator(';')
+                    .build()
+                    .parse();
+        }
+    }
+
+    /**
+     * Describes a data file by the store and date in its name
+     * @param filePath Path of a product or discount file
+     * @return The described file, or null if the name matches neither format
+     */
+    public DataFile describeFile(String filePath) {
+        Path fileName = Paths.get(filePath).getFileName();
+        if (fileName == null) {
+            return null;
+        }
+
+        Matcher matcher = DISCOUNT_FILENAME.matcher(fileName.toString());
+        if (matcher.matches()) {
+            return new DataFile(filePath, DataFile.Type.DISCOUNTS,
+                    matcher.group(1), LocalDate.parse(matcher.group(2), DATE_FORMATTER));
+        }
+
+        matcher = PRODUCT_FILENAME.matcher(fileName.toString());
+        if (matcher.matches()) {
+            return new DataFile(filePath, DataFile.Type.PRODUCTS,
+                    matcher.group(1), LocalDate.parse(matcher.group(2), DATE_FORMATTER));
         }
+        return null;
     }
 
     public List<String> findProductFiles(String dataDirectory) {
@@ -113,7 +170,9 @@ public class CSVHelper {
             return stream
                     .filter(Files::isRegularFile)
                     .map(Path::toString)
-                    .filter(file -> file.matches(".*" + PRODUCT_FILENAME_PATTERN))
+                    .filter(file -> PRODUCT_FILE_PATH.matcher(file).matches())
+                    // "<store>_discounts_<date>.csv" also ends like a product file name
+                    .filter(file -> !DISCOUNT_FILE_PATH.matcher(file).matches())
                     .collect(Collectors.toList());
         } catch (IOException e) {
             log.error("Failed to list product files in directory: {}", dataDirectory, e);
@@ -126,7 +185,7 @@ public class CSVHelper {
             return stream
                     .filter(Files::isRegularFile)
                     .map(Path::toString)
-                    .filter(file -> file.matches(".*" + DISCOUNT_FILENAME_PATTERN))
+                    .filter(file -> DISCOUNT_FILE_PATH.matcher(file).matches())
                     .collect(Collectors.toList());
         } catch (IOException e) {
             log.error("Failed to list discount files in directory: {}", dataDirectory, e);
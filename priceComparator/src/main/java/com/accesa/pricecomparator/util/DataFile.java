@@ -0,0 +1,58 @@
+package com.accesa.pricecomparator.util;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A product or discount file in the data directory, identified by the store and
+ * date encoded in its name. Files sharing a store and date form one partition.
+ */
+public final class DataFile {
+
+    public enum Type { PRODUCTS, DISCOUNTS }
+
+    private final String path;
+    private final Type type;
+    private final String store;
+    private final LocalDate date;
+
+    public DataFile(String path, Type type, String store, LocalDate date) {
+        this.path = path;
+        this.type = type;
+        this.store = store;
+        this.date = date;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DataFile)) return false;
+        return path.equals(((DataFile) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
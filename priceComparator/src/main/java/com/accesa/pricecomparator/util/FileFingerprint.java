@@ -0,0 +1,54 @@
+package com.accesa.pricecomparator.util;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Size and modification time of a data file, used to spot files that changed on disk.
+ */
+public final class FileFingerprint {
+
+    private final DataFile file;
+    private final long size;
+    private final long lastModified;
+
+    public FileFingerprint(DataFile file, long size, long lastModified) {
+        this.file = file;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public static FileFingerprint of(DataFile file) {
+        File onDisk = new File(file.getPath());
+        return new FileFingerprint(file, onDisk.length(), onDisk.lastModified());
+    }
+
+    public DataFile getFile() {
+        return file;
+    }
+
+    public String getPath() {
+        return file.getPath();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileFingerprint)) return false;
+        FileFingerprint other = (FileFingerprint) o;
+        return size == other.size && lastModified == other.lastModified && file.equals(other.file);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(file, size, lastModified);
+    }
+}
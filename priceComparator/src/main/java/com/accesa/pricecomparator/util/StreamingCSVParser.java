@@ -0,0 +1,415 @@
+package com.accesa.pricecomparator.util;
+
+import com.accesa.pricecomparator.model.AlertImportRow;
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Hand-written parser for the ';' separated product and discount files.
+ * The header row is mapped once to column ids, after which every cell is scanned
+ * in place and written straight into the model, without reflection or String[] rows.
+ * Quoted cells are supported, but a quoted cell may not span several lines.
+ */
+public final class StreamingCSVParser {
+
+    private static final char SEPARATOR = ';';
+    private static final char QUOTE = '"';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Column ids for product files
+    private static final String[] PRODUCT_COLUMNS = {
+            "product_id", "product_name", "product_category", "brand",
+            "package_quantity", "package_unit", "price", "currency"
+    };
+    private static final int PRODUCT_ID = 0;
+    private static final int PRODUCT_NAME = 1;
+    private static final int PRODUCT_CATEGORY = 2;
+    private static final int BRAND = 3;
+    private static final int PACKAGE_QUANTITY = 4;
+    private static final int PACKAGE_UNIT = 5;
+    private static final int PRICE = 6;
+    private static final int CURRENCY = 7;
+
+    // Column ids for discount files
+    private static final String[] DISCOUNT_COLUMNS = {
+            "product_id", "product_name", "brand", "package_quantity", "package_unit",
+            "product_category", "from_date", "to_date", "percentage_of_discount"
+    };
+    private static final int D_PRODUCT_ID = 0;
+    private static final int D_PRODUCT_NAME = 1;
+    private static final int D_BRAND = 2;
+    private static final int D_PACKAGE_QUANTITY = 3;
+    private static final int D_PACKAGE_UNIT = 4;
+    private static final int D_PRODUCT_CATEGORY = 5;
+    private static final int D_FROM_DATE = 6;
+    private static final int D_TO_DATE = 7;
+    private static final int D_PERCENTAGE = 8;
+
+    // Column ids for bulk alert imports
+    private static final String[] ALERT_COLUMNS = {"product_id", "store", "target_price", "user_id"};
+    private static final int A_PRODUCT_ID = 0;
+    private static final int A_STORE = 1;
+    private static final int A_TARGET_PRICE = 2;
+    private static final int A_USER_ID = 3;
+
+    private static final int UNMAPPED = -1;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private StreamingCSVParser() {
+    }
+
+    public static List<Product> parseProducts(Path path) throws IOException {
+        return parse(path, PRODUCT_COLUMNS, Product::new, StreamingCSVParser::setProductField);
+    }
+
+    public static List<Discount> parseDiscounts(Path path) throws IOException {
+        return parse(path, DISCOUNT_COLUMNS, Discount::new, StreamingCSVParser::setDiscountField);
+    }
+
+    /**
+     * Reads alert import rows lazily, one line per call to next(). A line that cannot be
+     * read becomes a row carrying the error instead of failing the whole import.
+     * @param reader Body with a product_id;store;target_price;user_id header
+     * @return Rows in file order
+     */
+    public static Iterator<AlertImportRow> alertRows(BufferedReader reader) {
+        return new Iterator<AlertImportRow>() {
+            private final Cell cell = new Cell();
+            private int[] columnIds;
+            private int lineNumber;
+            private String line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (columnIds == null) {
+                        String header = reader.readLine();
+                        if (header == null) {
+                            return false;
+                        }
+                        columnIds = mapHeader(header, ALERT_COLUMNS);
+                        lineNumber = 1;
+                    }
+                    while (line == null) {
+                        line = reader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+                        lineNumber++;
+                        if (line.isEmpty()) {
+                            line = null;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public AlertImportRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                AlertImportRow row = new AlertImportRow();
+                row.setLine(lineNumber);
+                cell.reset(line, lineNumber);
+                line = null;
+                try {
+                    int fileColumn = 0;
+                    while (cell.next()) {
+                        if (fileColumn < columnIds.length && columnIds[fileColumn] != UNMAPPED && !cell.isEmpty()) {
+                            setAlertField(row, columnIds[fileColumn], cell);
+                        }
+                        fileColumn++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return AlertImportRow.malformed(row.getLine(), e.getMessage());
+                }
+                return row;
+            }
+        };
+    }
+
+    private static void setAlertField(AlertImportRow row, int column, Cell cell) {
+        switch (column) {
+            case A_PRODUCT_ID: row.setProductId(cell.pooledText()); break;
+            case A_STORE: row.setStore(cell.pooledText()); break;
+            case A_TARGET_PRICE: row.setTargetPrice(cell.decimal()); break;
+            case A_USER_ID: row.setUserId(cell.text()); break;
+            default: break;
+        }
+    }
+
+    private static void setProductField(Product product, int column, Cell cell) {
+        switch (column) {
+            case PRODUCT_ID: product.setProductId(cell.text()); break;
+            case PRODUCT_NAME: product.setProductName(cell.text()); break;
+            case PRODUCT_CATEGORY: product.setProductCategory(cell.pooledText()); break;
+            case BRAND: product.setBrand(cell.pooledText()); break;
+            case PACKAGE_QUANTITY: product.setPackageQuantity(cell.decimal()); break;
+            case PACKAGE_UNIT: product.setPackageUnit(cell.pooledText()); break;
+            case PRICE: product.setPrice(cell.decimal()); break;
+            case CURRENCY: product.setCurrency(cell.pooledText()); break;
+            default: break;
+        }
+    }
+
+    private static void setDiscountField(Discount discount, int column, Cell cell) {
+        switch (column) {
+            case D_PRODUCT_ID: discount.setProductId(cell.text()); break;
+            case D_PRODUCT_NAME: discount.setProductName(cell.text()); break;
+            case D_BRAND: discount.setBrand(cell.pooledText()); break;
+            case D_PACKAGE_QUANTITY: discount.setPackageQuantity(cell.decimal()); break;
+            case D_PACKAGE_UNIT: discount.setPackageUnit(cell.pooledText()); break;
+            case D_PRODUCT_CATEGORY: discount.setProductCategory(cell.pooledText()); break;
+            case D_FROM_DATE: discount.setFromDate(cell.date()); break;
+            case D_TO_DATE: discount.setToDate(cell.date()); break;
+            case D_PERCENTAGE: discount.setPercentageDiscount(cell.integer()); break;
+            default: break;
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldSetter<T> {
+        void set(T target, int column, Cell cell);
+    }
+
+    private static <T> List<T> parse(Path path, String[] knownColumns, Supplier<T> factory,
+                                     FieldSetter<T> setter) throws IOException {
+        List<T> rows = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                Files.newBufferedReader(path, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return rows;
+            }
+            int[] columnIds = mapHeader(header, knownColumns);
+
+            Cell cell = new Cell();
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                T row = factory.get();
+                cell.reset(line, lineNumber);
+                int fileColumn = 0;
+                while (cell.next()) {
+                    if (fileColumn < columnIds.length && columnIds[fileColumn] != UNMAPPED && !cell.isEmpty()) {
+                        setter.set(row, columnIds[fileColumn], cell);
+                    }
+                    fileColumn++;
+                }
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    private static int[] mapHeader(String header, String[] knownColumns) {
+        // Drop a UTF-8 byte order mark if the file was saved with one
+        if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+            header = header.substring(1);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        Cell cell = new Cell();
+        cell.reset(header, 1);
+        while (cell.next()) {
+            String name = cell.text().trim();
+            int id = UNMAPPED;
+            for (int i = 0; i < knownColumns.length; i++) {
+                if (knownColumns[i].equalsIgnoreCase(name)) {
+                    id = i;
+                    break;
+                }
+            }
+            ids.add(id);
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Cursor over the cells of the current line. Unquoted cells are read straight
+     * from the line; quoted cells are unescaped into a reusable buffer.
+     */
+    private static final class Cell {
+        private final StringBuilder unquoted = new StringBuilder();
+        private final Map<String, String> pool = new HashMap<>();
+
+        private String line;
+        private int lineNumber;
+        private int position;
+        private CharSequence source;
+        private int start;
+        private int end;
+
+        void reset(String line, int lineNumber) {
+            this.line = line;
+            this.lineNumber = lineNumber;
+            this.position = 0;
+        }
+
+        boolean next() {
+            if (position > line.length()) {
+                return false;
+            }
+
+            if (position < line.length() && line.charAt(position) == QUOTE) {
+                unquoted.setLength(0);
+                int i = position + 1;
+                while (i < line.length()) {
+                    char c = line.charAt(i);
+                    if (c == QUOTE) {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                            unquoted.append(QUOTE);
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    unquoted.append(c);
+                    i++;
+                }
+                int separator = line.indexOf(SEPARATOR, i);
+                source = unquoted;
+                start = 0;
+                end = unquoted.length();
+                position = separator < 0 ? line.length() + 1 : separator + 1;
+                return true;
+            }
+
+            int separator = line.indexOf(SEPARATOR, position);
+            source = line;
+            start = position;
+            end = separator < 0 ? line.length() : separator;
+            position = end + 1;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        String text() {
+            return source.subSequence(start, end).toString();
+        }
+
+        // Low-cardinality columns share one String instance per distinct value
+        String pooledText() {
+            return pool.computeIfAbsent(text(), value -> value);
+        }
+
+        Double decimal() {
+            int i = start;
+            boolean negative = false;
+            if (source.charAt(i) == '-' || source.charAt(i) == '+') {
+                negative = source.charAt(i) == '-';
+                i++;
+            }
+
+            long mantissa = 0;
+            int digitCount = 0;
+            int scale = 0;
+            boolean fraction = false;
+            for (; i < end; i++) {
+                char c = source.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digitCount++;
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (c == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    digitCount = -1;
+                    break;
+                }
+            }
+
+            // Exponents, stray characters and very long values take the JDK path
+            if (digitCount <= 0 || digitCount > 15) {
+                try {
+                    return Double.parseDouble(text().trim());
+                } catch (NumberFormatException e) {
+                    throw malformed("number");
+                }
+            }
+
+            // mantissa and 10^scale are exact doubles, so this single division rounds like parseDouble
+            double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        Integer integer() {
+            int i = start;
+            boolean negative = source.charAt(i) == '-';
+            if (negative || source.charAt(i) == '+') {
+                i++;
+            }
+            if (i == end || end - i > 9) {
+                throw malformed("integer");
+            }
+
+            int value = 0;
+            for (; i < end; i++) {
+                char c = source.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw malformed("integer");
+                }
+                value = value * 10 + (c - '0');
+            }
+            return negative ? -value : value;
+        }
+
+        // Dates are always written as yyyy-MM-dd
+        LocalDate date() {
+            if (end - start != 10 || source.charAt(start + 4) != '-' || source.charAt(start + 7) != '-') {
+                throw malformed("date");
+            }
+            return LocalDate.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2));
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                char c = source.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw malformed("date");
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private IllegalArgumentException malformed(String type) {
+            return new IllegalArgumentException(
+                    "Malformed " + type + " '" + text() + "' on line " + lineNumber);
+        }
+    }
+}
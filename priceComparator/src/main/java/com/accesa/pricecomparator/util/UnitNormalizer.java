@@ -0,0 +1,82 @@
+package com.accesa.pricecomparator.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts package quantities to one base unit per dimension: kilograms for weights,
+ * litres for volumes, pieces and rolls as they are. Units it does not know are kept
+ * (trimmed, lower case) with a factor of 1, so they only compare with themselves.
+ */
+public final class UnitNormalizer {
+
+    private static final Map<String, Conversion> CONVERSIONS = new HashMap<>();
+
+    static {
+        register("kg", "kg", 1);
+        register("g", "kg", 0.001);
+        register("gr", "kg", 0.001);
+        register("mg", "kg", 0.000001);
+        register("l", "l", 1);
+        register("dl", "l", 0.1);
+        register("cl", "l", 0.01);
+        register("ml", "l", 0.001);
+        register("buc", "buc", 1);
+        register("buc.", "buc", 1);
+        register("bucata", "buc", 1);
+        register("bucati", "buc", 1);
+        register("role", "role", 1);
+        register("rola", "role", 1);
+    }
+
+    private UnitNormalizer() {
+    }
+
+    /**
+     * Gets the base unit of a package unit
+     * @param unit Package unit as listed (e.g. "g", "ml", "kg")
+     * @return Base unit (e.g. "kg", "l"), or null if the unit is missing
+     */
+    public static String baseUnit(String unit) {
+        Conversion conversion = conversionOf(unit);
+        return conversion != null ? conversion.baseUnit : null;
+    }
+
+    /**
+     * Converts a package quantity to its base unit
+     * @param quantity Package quantity as listed
+     * @param unit Package unit as listed
+     * @return Quantity in the base unit, or NaN if the quantity or unit is missing
+     */
+    public static double toBaseQuantity(Double quantity, String unit) {
+        Conversion conversion = conversionOf(unit);
+        if (quantity == null || conversion == null) {
+            return Double.NaN;
+        }
+        return quantity * conversion.factor;
+    }
+
+    private static Conversion conversionOf(String unit) {
+        if (unit == null || unit.isBlank()) {
+            return null;
+        }
+        String key = unit.trim().toLowerCase(Locale.ROOT);
+        Conversion conversion = CONVERSIONS.get(key);
+        return conversion != null ? conversion : new Conversion(key, 1);
+    }
+
+    private static void register(String unit, String baseUnit, double factor) {
+        CONVERSIONS.put(unit, new Conversion(baseUnit, factor));
+    }
+
+    private static final class Conversion {
+        private final String baseUnit;
+        private final double factor;
+
+        Conversion(String baseUnit, double factor) {
+            this.baseUnit = baseUnit;
+            this.factor = factor;
+        }
+    }
+}
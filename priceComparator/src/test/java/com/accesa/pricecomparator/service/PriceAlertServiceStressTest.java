@@ -0,0 +1,248 @@
+package com.accesa.pricecomparator.service;
+
+import com.accesa.pricecomparator.data.AlertJournal;
+import com.accesa.pricecomparator.data.DatasetSnapshot;
+import com.accesa.pricecomparator.model.AlertStatus;
+import com.accesa.pricecomparator.model.CursorPage;
+import com.accesa.pricecomparator.model.PriceAlert;
+import com.accesa.pricecomparator.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many threads checking, creating and deleting alerts at once: every alert must trigger
+ * at most once, and exactly once unless it was deleted first.
+ */
+class PriceAlertServiceStressTest {
+
+    private static final int CHECKERS = 8;
+    private static final int ROUNDS = 20;
+    private static final int ALERTS = 2000;
+    private static final LocalDate DATE = LocalDate.of(2025, 5, 1);
+
+    private final AtomicReference<DatasetSnapshot> dataset = new AtomicReference<>();
+    private final Map<Long, AtomicInteger> notifications = new ConcurrentHashMap<>();
+    private PriceAlertService service;
+    private ExecutorService threads;
+
+    @BeforeEach
+    void setUp() {
+        CSVService csvService = mock(CSVService.class);
+        when(csvService.getSnapshot()).thenAnswer(invocation -> dataset.get());
+
+        AlertNotificationService notificationService = mock(AlertNotificationService.class);
+        doAnswer(invocation -> {
+            PriceAlert alert = invocation.getArgument(0);
+            notifications.computeIfAbsent(alert.getId(), id -> new AtomicInteger()).incrementAndGet();
+            return null;
+        }).when(notificationService).publish(any());
+
+        AlertJournal journal = new AlertJournal();
+        ReflectionTestUtils.setField(journal, "enabled", false);
+
+        service = new PriceAlertService(csvService, notificationService, journal);
+        threads = Executors.newFixedThreadPool(CHECKERS + 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+        service.shutdown();
+    }
+
+    @Test
+    void concurrentChecksTriggerEachAlertOnce() throws Exception {
+        dataset.set(snapshot(1, 10.0, 12.0));
+        List<PriceAlert> alerts = new ArrayList<>();
+        for (int i = 0; i < ALERTS; i++) {
+            String store = i % 3 == 0 ? null : (i % 3 == 1 ? "lidl" : "Kaufland");
+            alerts.add(service.createAlert("P001", store, 5.0 + (i % 50) * 0.1, "user" + (i % 10)));
+        }
+        assertTrue(notifications.isEmpty(), "no alert reaches its target at the starting prices");
+
+        // Every target is reached from now on
+        dataset.set(snapshot(2, 4.0, 4.5));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<PriceAlert>>> checks = new ArrayList<>();
+        for (int c = 0; c < CHECKERS; c++) {
+            checks.add(threads.submit(whenStarted(start, () -> {
+                List<PriceAlert> triggered = new ArrayList<>();
+                for (int round = 0; round < ROUNDS; round++) {
+                    triggered.addAll(service.checkAllAlerts());
+                }
+                return triggered;
+            })));
+        }
+        // Deletes race the checks
+        List<Future<List<PriceAlert>>> deletes = new ArrayList<>();
+        for (int d = 0; d < 2; d++) {
+            int offset = d;
+            deletes.add(threads.submit(whenStarted(start, () -> {
+                for (int i = offset; i < ALERTS; i += 14) {
+                    service.deleteAlert(alerts.get(i).getId());
+                }
+                return Collections.emptyList();
+            })));
+        }
+        // Creates race the checks: their own first check competes with the checkers
+        List<Future<List<PriceAlert>>> creates = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            creates.add(threads.submit(whenStarted(start, () -> {
+                List<PriceAlert> created = new ArrayList<>();
+                for (int i = 0; i < ALERTS / 4; i++) {
+                    created.add(service.createAlert("P001", i % 2 == 0 ? null : "lidl", 8.0, "racer"));
+                }
+                return created;
+            })));
+        }
+        start.countDown();
+
+        Set<Long> reportedByChecks = new HashSet<>();
+        for (Future<List<PriceAlert>> check : checks) {
+            for (PriceAlert alert : check.get(60, TimeUnit.SECONDS)) {
+                assertTrue(reportedByChecks.add(alert.getId()), "alert " + alert.getId() + " reported by two checks");
+            }
+        }
+        for (Future<List<PriceAlert>> delete : deletes) {
+            delete.get(60, TimeUnit.SECONDS);
+        }
+        for (Future<List<PriceAlert>> create : creates) {
+            alerts.addAll(create.get(60, TimeUnit.SECONDS));
+        }
+        // Alerts created after the last check trigger on their own first check
+        service.checkAllAlerts();
+
+        int triggered = 0;
+        for (PriceAlert alert : alerts) {
+            int sent = notifications.getOrDefault(alert.getId(), new AtomicInteger()).get();
+            assertNotEquals(AlertStatus.ACTIVE, alert.getStatus(), "alert " + alert.getId() + " still active");
+            if (alert.getTriggeredAt() == null) {
+                assertEquals(AlertStatus.DELETED, alert.getStatus());
+                assertEquals(0, sent, "deleted alert " + alert.getId() + " was published");
+                continue;
+            }
+            triggered++;
+            assertEquals(1, sent, "alert " + alert.getId() + " published " + sent + " times");
+            assertNotNull(alert.getTriggeredStore());
+            assertTrue(alert.getTriggeredPrice() <= alert.getTargetPrice());
+        }
+        assertEquals(triggered, notifications.size());
+        assertTrue(triggered > ALERTS, "most alerts trigger before they are deleted");
+
+        // Paged listings hold every surviving alert once, and none of the deleted ones
+        Set<Long> surviving = new HashSet<>();
+        for (PriceAlert alert : alerts) {
+            if (alert.getStatus() != AlertStatus.DELETED) {
+                surviving.add(alert.getId());
+            }
+        }
+        assertEquals(surviving, listAll(null));
+        Set<Long> byUser = new HashSet<>(listAll("racer"));
+        for (int user = 0; user < 10; user++) {
+            byUser.addAll(listAll("user" + user));
+        }
+        assertEquals(surviving, byUser);
+        assertTrue(service.getAlerts(null, null, true, null, 10).getItems().isEmpty());
+    }
+
+    private Set<Long> listAll(String userId) {
+        Set<Long> ids = new HashSet<>();
+        Long cursor = null;
+        do {
+            CursorPage<PriceAlert> page = service.getAlerts(userId, null, false, cursor, 37);
+            for (PriceAlert alert : page.getItems()) {
+                assertTrue(ids.add(alert.getId()), "alert " + alert.getId() + " listed twice");
+            }
+            cursor = page.getNextCursor() != null ? Long.valueOf(page.getNextCursor()) : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    void racingTransitionsHaveOneWinner() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            PriceAlert alert = new PriceAlert("P001", "lapte zuzu", null, 9.0, "user");
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> triggers = new ArrayList<>();
+            for (int t = 0; t < CHECKERS; t++) {
+                double price = 8.0 + t * 0.1;
+                triggers.add(threads.submit(whenStarted(start,
+                        () -> alert.trigger("lidl", price, LocalDateTime.now()))));
+            }
+            Future<Boolean> delete = threads.submit(whenStarted(start, alert::markDeleted));
+            start.countDown();
+
+            int wins = 0;
+            for (Future<Boolean> trigger : triggers) {
+                wins += trigger.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertTrue(delete.get(10, TimeUnit.SECONDS));
+            assertEquals(AlertStatus.DELETED, alert.getStatus());
+            // Either one trigger won before the delete, with its details kept, or none did
+            assertEquals(alert.getTriggeredAt() != null ? 1 : 0, wins);
+            assertEquals(alert.getTriggeredAt() != null, alert.getTriggeredPrice() != null);
+            assertTrue(!alert.markDeleted());
+        }
+    }
+
+    private static <T> Callable<T> whenStarted(CountDownLatch start, Callable<T> task) {
+        return () -> {
+            start.await();
+            return task.call();
+        };
+    }
+
+    private static DatasetSnapshot snapshot(long version, double lidlPrice, double kauflandPrice) {
+        Map<String, Map<LocalDate, List<Product>>> products = new HashMap<>();
+        products.put("lidl", Map.of(DATE, List.of(product("lidl", lidlPrice))));
+        products.put("kaufland", Map.of(DATE, List.of(product("kaufland", kauflandPrice))));
+        return DatasetSnapshot.of(version, products, Collections.emptyMap());
+    }
+
+    private static Product product(String store, double price) {
+        Product product = new Product();
+        product.setProductId("P001");
+        product.setProductName("lapte zuzu");
+        product.setProductCategory("lactate");
+        product.setBrand("Zuzu");
+        product.setPackageQuantity(1.0);
+        product.setPackageUnit("l");
+        product.setPrice(price);
+        product.setCurrency("RON");
+        product.setStore(store);
+        product.setDate(DATE);
+        product.normalizeUnitPrice();
+        return product;
+    }
+}
@@ -0,0 +1,113 @@
+package com.accesa.pricecomparator.util;
+
+import com.accesa.pricecomparator.model.Discount;
+import com.accesa.pricecomparator.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The streaming parser is the default; it has to read every file exactly like the
+ * OpenCSV binding it replaced, including the rows that make a file fail.
+ */
+class StreamingCSVParserTest {
+
+    private static final String DATA_DIRECTORY = "data";
+    private static final String PRODUCT_HEADER =
+            "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n";
+    private static final String DISCOUNT_HEADER =
+            "product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n";
+
+    private final CSVHelper streaming = helper("streaming");
+    private final CSVHelper openCsv = helper("opencsv");
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void checkDataDirectory() {
+        assertFalse(streaming.findProductFiles(DATA_DIRECTORY).isEmpty(), "no product files in " + DATA_DIRECTORY);
+    }
+
+    @Test
+    void parsesEveryDataFileLikeOpenCsv() {
+        for (String file : streaming.findProductFiles(DATA_DIRECTORY)) {
+            List<Product> expected = openCsv.parseProductCSV(file);
+            assertFalse(expected.isEmpty(), file);
+            assertEquals(expected, streaming.parseProductCSV(file), file);
+        }
+        for (String file : streaming.findDiscountFiles(DATA_DIRECTORY)) {
+            List<Discount> expected = openCsv.parseDiscountCSV(file);
+            assertFalse(expected.isEmpty(), file);
+            assertEquals(expected, streaming.parseDiscountCSV(file), file);
+        }
+    }
+
+    @Test
+    void readsQuotedCellsLikeOpenCsv() throws IOException {
+        String file = write("lidl_2025-05-01.csv", PRODUCT_HEADER
+                + "P001;\"lapte; zuzu \"\"bio\"\"\";lactate;Zuzu;1;l;9.90;RON\n"
+                + "P002;\"paine\";panificatie;\"Vel Pitar\";500;g;4.5;RON\n");
+
+        List<Product> products = streaming.parseProductCSV(file);
+        assertEquals("lapte; zuzu \"bio\"", products.get(0).getProductName());
+        assertEquals(openCsv.parseProductCSV(file), products);
+    }
+
+    @Test
+    void readsFilesWithByteOrderMark() throws IOException {
+        String content = PRODUCT_HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n";
+        String plain = write("lidl_2025-05-01.csv", content);
+        String withBom = write("profi_2025-05-01.csv", "\uFEFF" + content);
+
+        List<Product> products = streaming.parseProductCSV(withBom);
+        assertEquals("P001", products.get(0).getProductId());
+        assertEquals(openCsv.parseProductCSV(withBom), products);
+        // Same rows as without the mark, apart from the store taken from the file name
+        products.forEach(product -> product.setStore("lidl"));
+        assertEquals(streaming.parseProductCSV(plain), products);
+    }
+
+    @Test
+    void rejectsMalformedDecimalsLikeOpenCsv() throws IOException {
+        String file = write("lidl_2025-05-01.csv", PRODUCT_HEADER
+                + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n"
+                + "P002;paine;panificatie;Vel Pitar;500;g;4,5O;RON\n");
+
+        assertThrows(IllegalStateException.class, () -> openCsv.parseProductCSV(file));
+        assertThrows(IllegalStateException.class, () -> streaming.parseProductCSV(file));
+    }
+
+    @Test
+    void rejectsMalformedDatesLikeOpenCsv() throws IOException {
+        String file = write("lidl_discounts_2025-05-01.csv", DISCOUNT_HEADER
+                + "P001;lapte zuzu;Zuzu;1;l;lactate;2025-05-01;2025-05-07;10\n"
+                + "P002;paine;Vel Pitar;500;g;panificatie;2025/05/01;2025-05-07;15\n");
+
+        assertThrows(IllegalStateException.class, () -> openCsv.parseDiscountCSV(file));
+        assertThrows(IllegalStateException.class, () -> streaming.parseDiscountCSV(file));
+    }
+
+    private String write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private static CSVHelper helper(String parser) {
+        CSVHelper helper = new CSVHelper();
+        ReflectionTestUtils.setField(helper, "parser", parser);
+        return helper;
+    }
+}